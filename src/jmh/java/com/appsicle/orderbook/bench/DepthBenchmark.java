@@ -0,0 +1,110 @@
+package com.appsicle.orderbook.bench;
+
+import com.appsicle.orderbook.OrderBook;
+import com.appsicle.orderbook.OrderBookListener;
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderSides;
+import com.questdb.std.Unsafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Depth queries on a book with 1000 levels per side, either on every tick (dense) or
+ * {@link OrderFlow#SPARSE_TICK} ticks apart (sparse).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DepthBenchmark {
+    private static final long MID_PRICE = 1_000_000;
+    private static final int LEVELS = 1000;
+
+    @Benchmark
+    public long getEntryAtBidLevel(LevelState state) {
+        return state.book.getEntryAtBidLevel(state.depth);
+    }
+
+    @Benchmark
+    public long getOrderBook(LadderState state) {
+        state.book.getOrderBook(state.listener);
+        return state.sizeSum;
+    }
+
+    public enum Ladder {
+        DENSE(1), SPARSE(OrderFlow.SPARSE_TICK);
+
+        private final long tick;
+
+        Ladder(long tick) {
+            this.tick = tick;
+        }
+    }
+
+    public abstract static class BookState {
+        OrderBook book;
+
+        void open(Ladder ladder) {
+            long range = (LEVELS + 1) * ladder.tick;
+            book = new OrderBook(MID_PRICE - range, MID_PRICE + range, 2 * LEVELS, executionReport -> {
+            });
+            long order = Unsafe.malloc(Order.SIZE);
+            for (int i = 1; i <= LEVELS; i++) {
+                Order.setSize(order, 10);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, MID_PRICE - i * ladder.tick);
+                book.limitOrder(order);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, MID_PRICE + i * ladder.tick);
+                book.limitOrder(order);
+            }
+            Unsafe.free(order, Order.SIZE);
+        }
+
+        @TearDown
+        public void close() {
+            book.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LevelState extends BookState {
+        @Param({"DENSE", "SPARSE"})
+        public Ladder ladder;
+
+        @Param({"0", "10", "100", "999"})
+        public long depth;
+
+        @Setup
+        public void setup() {
+            open(ladder);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LadderState extends BookState {
+        @Param({"DENSE", "SPARSE"})
+        public Ladder ladder;
+
+        long sizeSum;
+        final OrderBookListener listener = (level, bid, bidSize, ask, askSize) -> sizeSum += bidSize + askSize;
+
+        @Setup
+        public void setup() {
+            open(ladder);
+        }
+    }
+}
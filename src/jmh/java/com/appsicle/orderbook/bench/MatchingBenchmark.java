@@ -0,0 +1,194 @@
+package com.appsicle.orderbook.bench;
+
+import com.appsicle.orderbook.OrderBook;
+import com.appsicle.orderbook.model.ExecutionReport;
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderSides;
+import com.questdb.std.Unsafe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderBook#limitOrder(long)} throughput and latency percentiles. Every benchmark leaves the book
+ * in the state it found it, or bounds the number of resting orders, so that results do not drift with
+ * iteration length.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmark {
+    static final long MID_PRICE = 100_000;
+    static final long PRICE_RANGE = 10_000;
+
+    /**
+     * Resting orders are bounded by cancelling the order placed this many orders ago.
+     */
+    static final int RESTING_ORDERS = 1 << 16;
+
+    @Benchmark
+    public long passiveInsert(PassiveState state) {
+        return state.insert();
+    }
+
+    @Benchmark
+    public long singleLevelFill(FillState state) {
+        return state.fill();
+    }
+
+    @Benchmark
+    public long multiLevelSweep(SweepState state) {
+        return state.sweep();
+    }
+
+    @Benchmark
+    public long replay(ReplayState state) {
+        return state.next();
+    }
+
+    public abstract static class BookState {
+        OrderBook book;
+        long order;
+        long fills;
+
+        void open() {
+            book = new OrderBook(MID_PRICE - PRICE_RANGE, MID_PRICE + PRICE_RANGE, RESTING_ORDERS + 1024, this::onExecution);
+            order = Unsafe.malloc(Order.SIZE);
+        }
+
+        @TearDown
+        public void close() {
+            book.close();
+            Unsafe.free(order, Order.SIZE);
+        }
+
+        long limitOrder(byte side, long price, long size) {
+            Order.setSide(order, side);
+            Order.setPrice(order, price);
+            Order.setSize(order, size);
+            return book.limitOrder(order);
+        }
+
+        long cancelOlderThan(long orderID) {
+            if (orderID >= RESTING_ORDERS) {
+                book.cancelOrder(orderID - RESTING_ORDERS);
+            }
+            return orderID;
+        }
+
+        private void onExecution(long executionReport) {
+            fills += ExecutionReport.getOrderSize(executionReport);
+        }
+    }
+
+    /**
+     * Bids spread over 128 levels below the best ask, none of them ever crossing.
+     */
+    @State(Scope.Thread)
+    public static class PassiveState extends BookState {
+        private long sequence;
+
+        @Setup
+        public void setup() {
+            open();
+        }
+
+        long insert() {
+            long price = MID_PRICE - 1 - (sequence++ & 127);
+            return cancelOlderThan(limitOrder(OrderSides.BUY, price, 10));
+        }
+    }
+
+    /**
+     * Buy fills the oldest of 1000 resting sells at a single level, then a sell of the same size
+     * replenishes the level.
+     */
+    @State(Scope.Thread)
+    public static class FillState extends BookState {
+
+        @Setup
+        public void setup() {
+            open();
+            for (int i = 0; i < 1000; i++) {
+                limitOrder(OrderSides.SELL, MID_PRICE, 100);
+            }
+        }
+
+        long fill() {
+            limitOrder(OrderSides.BUY, MID_PRICE, 100);
+            return limitOrder(OrderSides.SELL, MID_PRICE, 100);
+        }
+    }
+
+    /**
+     * Buy sweeps a resting sell at each of the levels, then sells replenish all of them.
+     */
+    @State(Scope.Thread)
+    public static class SweepState extends BookState {
+        @Param({"2", "10", "100"})
+        public int levels;
+
+        @Setup
+        public void setup() {
+            open();
+            replenish();
+        }
+
+        long sweep() {
+            limitOrder(OrderSides.BUY, MID_PRICE + levels, 10L * levels);
+            return replenish();
+        }
+
+        private long replenish() {
+            long orderID = 0;
+            for (int i = 1; i <= levels; i++) {
+                orderID = limitOrder(OrderSides.SELL, MID_PRICE + i, 10);
+            }
+            return orderID;
+        }
+    }
+
+    /**
+     * Replays synthetic order flow, cancelling orders that outlived the resting bound.
+     */
+    @State(Scope.Thread)
+    public static class ReplayState extends BookState {
+        @Param({"UNIFORM", "NORMAL", "SPARSE"})
+        public OrderFlow.PriceDistribution distribution;
+
+        private OrderFlow flow;
+        private int index;
+
+        @Setup
+        public void setup() {
+            open();
+            flow = new OrderFlow(42, 1 << 20, MID_PRICE, PRICE_RANGE, 100, distribution);
+        }
+
+        @TearDown
+        public void closeFlow() {
+            flow.close();
+        }
+
+        long next() {
+            long orderID = book.limitOrder(flow.getOrder(index));
+            if (++index == flow.getCount()) {
+                index = 0;
+            }
+            return cancelOlderThan(orderID);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.appsicle.orderbook.bench;
+
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderSides;
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+import java.util.Random;
+
+/**
+ * Synthetic order flow generated up front into off-heap {@link Order} records, so that replaying it
+ * in a benchmark loop does not allocate. Same seed and parameters always produce the same flow.
+ */
+public final class OrderFlow implements Closeable {
+
+    public enum PriceDistribution {
+        /**
+         * Offsets from mid price spread evenly over the range, half of them crossing the book.
+         */
+        UNIFORM,
+        /**
+         * Offsets cluster near top of book, as in most real markets; about one order in six crosses.
+         */
+        NORMAL,
+        /**
+         * Same as {@link #NORMAL} with offsets scaled by {@link #SPARSE_TICK}, leaving most price points empty.
+         */
+        SPARSE
+    }
+
+    public static final long SPARSE_TICK = 64;
+
+    private final long mem;
+    private final long memSize;
+    private final int count;
+
+    /**
+     * @param midPrice   price orders are centered around, buys below and sells above it
+     * @param priceRange largest distance from mid price, in ticks
+     * @param maxSize    order sizes are uniform between 1 and maxSize
+     */
+    public OrderFlow(long seed, int count, long midPrice, long priceRange, long maxSize, PriceDistribution distribution) {
+        this.count = count;
+        this.memSize = (long) count * Order.SIZE;
+        this.mem = Unsafe.malloc(memSize);
+        Unsafe.getUnsafe().setMemory(mem, memSize, (byte) 0);
+
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            long offset;
+            switch (distribution) {
+                case UNIFORM:
+                    offset = (long) ((random.nextDouble() * 2 - 1) * priceRange);
+                    break;
+                case SPARSE:
+                    offset = nextNormalOffset(random, priceRange / SPARSE_TICK) * SPARSE_TICK;
+                    break;
+                default:
+                    offset = nextNormalOffset(random, priceRange);
+                    break;
+            }
+
+            long order = getOrder(i);
+            byte side = random.nextBoolean() ? OrderSides.BUY : OrderSides.SELL;
+            Order.setSide(order, side);
+            Order.setPrice(order, side == OrderSides.BUY ? midPrice - offset : midPrice + offset);
+            Order.setSize(order, 1 + random.nextInt((int) maxSize));
+        }
+    }
+
+    @Override
+    public void close() {
+        Unsafe.free(mem, memSize);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getOrder(int index) {
+        return mem + (long) index * Order.SIZE;
+    }
+
+    private static long nextNormalOffset(Random random, long priceRange) {
+        // mean and deviation of a quarter range keep most offsets passive, clamp the tails
+        long offset = (long) ((random.nextGaussian() + 1) * priceRange / 4);
+        return Math.max(-priceRange, Math.min(priceRange, offset));
+    }
+}
@@ -0,0 +1,98 @@
+package com.appsicle.orderbook;
+
+/**
+ * Matching algorithm that shares aggressor among resting orders of the last price point it reaches.
+ *
+ * @see OrderBook#setAllocation(Allocation)
+ */
+public abstract class Allocation {
+    /**
+     * Price-time priority, orders are filled from the head of the price point queue.
+     */
+    public static final Allocation FIFO = new Allocation() {
+        @Override
+        void execute(OrderBook orderBook, long aggressorID, long orderSize, long price, long pricePointEntry, long ppSize, byte side1, byte side2) {
+            orderBook.executeAtPricePoint(aggressorID, orderSize, price, pricePointEntry, ppSize, side1, side2);
+        }
+    };
+
+    /**
+     * Every order gets share of aggressor in proportion to its displayed size. Shares are cut at cumulative
+     * displayed size, so they add up to aggressor size.
+     */
+    public static final Allocation PRO_RATA = new Allocation() {
+        @Override
+        void execute(OrderBook orderBook, long aggressorID, long orderSize, long price, long pricePointEntry, long ppSize, byte side1, byte side2) {
+            assert orderSize <= Long.MAX_VALUE / ppSize;
+            final EntryLayout layout = orderBook.getLayout();
+            long orderBookEntry = layout.getOrderListHead(pricePointEntry);
+            long cumulative = 0;
+            long allocated = 0;
+            while (allocated < orderSize) {
+                final long next = layout.getNext(orderBookEntry);
+                cumulative += layout.getSize(orderBookEntry);
+                final long share = orderSize * cumulative / ppSize - allocated;
+                if (share > 0) {
+                    allocated += share;
+                    orderBook.fillOrder(aggressorID, orderSize - allocated, price, pricePointEntry, orderBookEntry, share, side1, side2);
+                }
+                orderBookEntry = next;
+            }
+            orderBook.publishDepth(side1, price, layout.getLevelSize(pricePointEntry));
+        }
+    };
+
+    /**
+     * Orders of lead market maker are filled first, up to given percentage of aggressor, the rest is matched FIFO.
+     *
+     * @param owner   owner ID of lead market maker, see {@link com.appsicle.orderbook.model.Order#setOwner(long, int)}
+     * @param percent share of aggressor reserved for lead market maker, 0 to 100
+     */
+    public static Allocation fifoWithLeadMarketMaker(int owner, int percent) {
+        assert owner != 0 && percent >= 0 && percent <= 100;
+        return new Allocation() {
+            @Override
+            void execute(OrderBook orderBook, long aggressorID, long orderSize, long price, long pricePointEntry, long ppSize, byte side1, byte side2) {
+                // percentage of size without overflow of the product
+                long share = orderSize / 100 * percent + orderSize % 100 * percent / 100;
+                // replenished iceberg orders queued behind the tail are not visited again
+                final EntryLayout layout = orderBook.getLayout();
+                final long tail = layout.getOrderListTail(pricePointEntry);
+                long orderBookEntry = layout.getOrderListHead(pricePointEntry);
+                while (share > 0) {
+                    final long next = layout.getNext(orderBookEntry);
+                    if (layout.getOwner(orderBookEntry) == owner) {
+                        final long size = Math.min(share, layout.getSize(orderBookEntry));
+                        share -= size;
+                        orderSize -= size;
+                        orderBook.fillOrder(aggressorID, orderSize, price, pricePointEntry, orderBookEntry, size, side1, side2);
+                    }
+                    if (orderBookEntry == tail) {
+                        break;
+                    }
+                    orderBookEntry = next;
+                }
+                // lead market maker has taken less than price point size, the rest cannot clear it either
+                orderBookEntry = layout.getOrderListHead(pricePointEntry);
+                while (orderSize > 0) {
+                    final long next = layout.getNext(orderBookEntry);
+                    final long size = Math.min(orderSize, layout.getSize(orderBookEntry));
+                    orderSize -= size;
+                    orderBook.fillOrder(aggressorID, orderSize, price, pricePointEntry, orderBookEntry, size, side1, side2);
+                    orderBookEntry = next;
+                }
+                orderBook.publishDepth(side1, price, layout.getLevelSize(pricePointEntry));
+            }
+        };
+    }
+
+    /**
+     * Matches aggressor smaller than price point size against price point and publishes its new depth.
+     * Price point keeps at least one order.
+     *
+     * @param ppSize displayed size of price point, greater than orderSize
+     * @param side1  side of resting orders
+     * @param side2  side of aggressor
+     */
+    abstract void execute(OrderBook orderBook, long aggressorID, long orderSize, long price, long pricePointEntry, long ppSize, byte side1, byte side2);
+}
@@ -0,0 +1,97 @@
+package com.appsicle.orderbook;
+
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Off-heap array of price point entry addresses of the best levels on one side of the book, best first.
+ */
+final class DepthCache implements Closeable {
+    private final long mem;
+    private final int capacity;
+    private final boolean descending;
+    private final EntryLayout layout;
+    private int count;
+
+    /**
+     * @param descending true for bids, where higher price is better.
+     */
+    DepthCache(int capacity, boolean descending, EntryLayout layout) {
+        assert capacity > 1;
+        this.capacity = capacity;
+        this.descending = descending;
+        this.layout = layout;
+        this.mem = Unsafe.malloc(capacity * 8L);
+    }
+
+    @Override
+    public void close() {
+        Unsafe.free(mem, capacity * 8L);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long get(int level) {
+        return Unsafe.getUnsafe().getLong(mem + level * 8L);
+    }
+
+    /**
+     * Places new level among cached ones. Level worse than all cached levels is ignored when cache is full,
+     * otherwise worst cached level drops out.
+     */
+    void add(long pricePointEntry) {
+        long price = layout.getLevelPrice(pricePointEntry);
+        int level = count;
+        while (level > 0 && isBetter(price, layout.getLevelPrice(get(level - 1)))) {
+            level--;
+        }
+        if (level == capacity) {
+            return;
+        }
+        long moved = Math.min(count, capacity - 1) - level;
+        Unsafe.getUnsafe().copyMemory(mem + level * 8L, mem + (level + 1) * 8L, moved * 8);
+        set(level, pricePointEntry);
+        if (count < capacity) {
+            count++;
+        }
+    }
+
+    /**
+     * Appends level worse than all cached levels, cache must not be full.
+     */
+    void append(long pricePointEntry) {
+        assert count < capacity;
+        set(count++, pricePointEntry);
+    }
+
+    /**
+     * Removes level by address, price point entry may have been released already.
+     *
+     * @return true if level was cached.
+     */
+    boolean remove(long pricePointEntry) {
+        for (int level = 0; level < count; level++) {
+            if (get(level) == pricePointEntry) {
+                Unsafe.getUnsafe().copyMemory(mem + (level + 1) * 8L, mem + level * 8L, (count - level - 1) * 8L);
+                count--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isBetter(long price, long other) {
+        return descending ? price > other : price < other;
+    }
+
+    private void set(int level, long pricePointEntry) {
+        Unsafe.getUnsafe().putLong(mem + level * 8L, pricePointEntry);
+    }
+}
@@ -0,0 +1,17 @@
+package com.appsicle.orderbook;
+
+/**
+ * Receives change of aggregate size at a price level as soon as order book applies it. Applying updates
+ * in the order they arrive reproduces order book depth, so L2 feed costs one update per changed level
+ * rather than a scan of the whole depth. Listener must not call back into the order book.
+ */
+@FunctionalInterface
+public interface DepthListener {
+    /**
+     * @param side  {@link com.appsicle.orderbook.model.OrderSides} of the level
+     * @param size  new aggregate size at price, 0 when level is removed
+     * @param level 0-based position of price among levels of its side, best first. Removed level
+     *              reports position it had.
+     */
+    void onDepthUpdate(long price, byte side, long size, long level);
+}
@@ -0,0 +1,704 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.CompactOrderBookEntry;
+import com.appsicle.orderbook.model.CompactPricePointEntry;
+import com.appsicle.orderbook.model.OrderBookEntry;
+import com.appsicle.orderbook.model.PricePointEntry;
+import com.questdb.std.Unsafe;
+
+import java.util.Arrays;
+
+/**
+ * Memory layout of order book entries and price points, picked once per book so calls stay monomorphic.
+ * Entries are allocated in chunks of 2^{@link #CHUNK_SHIFT} slots, followed by details of the slots.
+ */
+abstract class EntryLayout {
+    static final int CHUNK_SHIFT = 12;
+    static final long CHUNK_ORDERS = 1L << CHUNK_SHIFT;
+
+    private final int entrySize;
+    private final int detailsSize;
+    private final int sequenceSize;
+    private final int pricePointSize;
+    private final long chunkDetails;
+    private final long chunkSequences;
+    private final long chunkSize;
+    private long[] chunks = new long[16];
+    private int chunkCount;
+
+    private EntryLayout(int entrySize, int detailsSize, int sequenceSize, int pricePointSize) {
+        this.entrySize = entrySize;
+        this.detailsSize = detailsSize;
+        this.sequenceSize = sequenceSize;
+        this.pricePointSize = pricePointSize;
+        this.chunkDetails = CHUNK_ORDERS * entrySize;
+        this.chunkSequences = chunkDetails + CHUNK_ORDERS * detailsSize;
+        this.chunkSize = CHUNK_ORDERS * (entrySize + detailsSize + sequenceSize);
+    }
+
+    static EntryLayout create(boolean compact) {
+        return compact ? new Compact() : new Regular();
+    }
+
+    int getEntrySize() {
+        return entrySize;
+    }
+
+    int getPricePointSize() {
+        return pricePointSize;
+    }
+
+    long getChunkSize() {
+        return chunkSize;
+    }
+
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    long getChunk(int chunk) {
+        return chunks[chunk];
+    }
+
+    /**
+     * Chunks are never moved, so addresses of entries stay valid while the book grows.
+     */
+    void addChunk(long chunk) {
+        assert chunkCount < OrderBookEntry.MAX_CHUNKS;
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        chunks[chunkCount++] = chunk;
+    }
+
+    long getSlotAddress(long slot) {
+        return chunks[(int) (slot >>> CHUNK_SHIFT)] + (slot & (CHUNK_ORDERS - 1)) * entrySize;
+    }
+
+    long getDetails(long orderBookEntry) {
+        long slot = getSlot(orderBookEntry);
+        return chunks[(int) (slot >>> CHUNK_SHIFT)] + chunkDetails + (slot & (CHUNK_ORDERS - 1)) * detailsSize;
+    }
+
+    long getSequence(long orderBookEntry) {
+        long slot = getSlot(orderBookEntry);
+        return chunks[(int) (slot >>> CHUNK_SHIFT)] + chunkSequences + (slot & (CHUNK_ORDERS - 1)) * sequenceSize;
+    }
+
+    long getSlotsSize(long slotCount) {
+        return slotCount * (entrySize + detailsSize + sequenceSize);
+    }
+
+    /**
+     * Copies entries, details and queue sequences of the first slots, links are written as slot references.
+     */
+    void writeSlots(long dest, long slotCount) {
+        long details = dest + slotCount * entrySize;
+        long sequences = details + slotCount * detailsSize;
+        for (long slot = 0; slot < slotCount; slot += CHUNK_ORDERS) {
+            long chunk = chunks[(int) (slot >>> CHUNK_SHIFT)];
+            long count = Math.min(CHUNK_ORDERS, slotCount - slot);
+            Unsafe.getUnsafe().copyMemory(chunk, dest + slot * entrySize, count * entrySize);
+            Unsafe.getUnsafe().copyMemory(chunk + chunkDetails, details + slot * detailsSize, count * detailsSize);
+            Unsafe.getUnsafe().copyMemory(chunk + chunkSequences, sequences + slot * sequenceSize, count * sequenceSize);
+        }
+        for (long orderBookEntry = dest; orderBookEntry < details; orderBookEntry += entrySize) {
+            writeLinks(orderBookEntry);
+        }
+    }
+
+    void readSlots(long src, long slotCount) {
+        long details = src + slotCount * entrySize;
+        long sequences = details + slotCount * detailsSize;
+        for (long slot = 0; slot < slotCount; slot += CHUNK_ORDERS) {
+            long chunk = chunks[(int) (slot >>> CHUNK_SHIFT)];
+            long count = Math.min(CHUNK_ORDERS, slotCount - slot);
+            Unsafe.getUnsafe().copyMemory(src + slot * entrySize, chunk, count * entrySize);
+            Unsafe.getUnsafe().copyMemory(details + slot * detailsSize, chunk + chunkDetails, count * detailsSize);
+            Unsafe.getUnsafe().copyMemory(sequences + slot * sequenceSize, chunk + chunkSequences, count * sequenceSize);
+        }
+        for (long slot = 0; slot < slotCount; slot++) {
+            readLinks(getSlotAddress(slot));
+        }
+    }
+
+    /**
+     * @return slot number of order book entry plus one, 0 for no entry.
+     */
+    long toSlotRef(long orderBookEntry) {
+        return orderBookEntry == 0 ? 0 : getSlot(orderBookEntry) + 1;
+    }
+
+    long fromSlotRef(long slotRef) {
+        return slotRef == 0 ? 0 : getSlotAddress(slotRef - 1);
+    }
+
+    abstract void initSlot(long orderBookEntry, long slot);
+
+    abstract long getSlot(long orderBookEntry);
+
+    abstract void writeLinks(long orderBookEntry);
+
+    abstract void readLinks(long orderBookEntry);
+
+    abstract long getSize(long orderBookEntry);
+
+    abstract void setSize(long orderBookEntry, long size);
+
+    abstract long getNext(long orderBookEntry);
+
+    abstract void setNext(long orderBookEntry, long next);
+
+    abstract long getPrev(long orderBookEntry);
+
+    abstract void setPrev(long orderBookEntry, long prev);
+
+    abstract long getPrice(long orderBookEntry);
+
+    abstract void setPrice(long orderBookEntry, long price);
+
+    abstract long getOrderID(long orderBookEntry);
+
+    abstract void setOrderID(long orderBookEntry, long orderID);
+
+    abstract byte getSide(long orderBookEntry);
+
+    abstract void setSide(long orderBookEntry, byte side);
+
+    abstract byte getType(long orderBookEntry);
+
+    abstract void setType(long orderBookEntry, byte type);
+
+    abstract int getOwner(long orderBookEntry);
+
+    abstract void setOwner(long orderBookEntry, int owner);
+
+    abstract long getReserve(long orderBookEntry);
+
+    abstract void setReserve(long orderBookEntry, long reserve);
+
+    abstract long getStopLimitPrice(long orderBookEntry);
+
+    abstract void setStopLimitPrice(long orderBookEntry, long price);
+
+    /**
+     * @return Long.MAX_VALUE when order is not an iceberg.
+     */
+    abstract long getDisplaySize(long orderBookEntry);
+
+    abstract void setDisplaySize(long orderBookEntry, long displaySize);
+
+    abstract long getOriginalSize(long orderBookEntry);
+
+    abstract void setOriginalSize(long orderBookEntry, long originalSize);
+
+    abstract long getTimestamp(long orderBookEntry);
+
+    abstract void setTimestamp(long orderBookEntry, long timestamp);
+
+    /**
+     * @return displayed size queued ahead of order since the queue was last empty.
+     */
+    abstract long getQueueStart(long orderBookEntry);
+
+    /**
+     * @return number of orders queued ahead of order since the queue was last empty, only differences are meaningful.
+     */
+    abstract int getQueueSequence(long orderBookEntry);
+
+    abstract void setQueuePosition(long orderBookEntry, long start, int sequence);
+
+    abstract long getLevelSize(long pricePointEntry);
+
+    abstract void setLevelSize(long pricePointEntry, long size);
+
+    abstract long getOrderListHead(long pricePointEntry);
+
+    abstract void setOrderListHead(long pricePointEntry, long orderBookEntry);
+
+    abstract long getOrderListTail(long pricePointEntry);
+
+    abstract void setOrderListTail(long pricePointEntry, long orderBookEntry);
+
+    abstract long getLevelPrice(long pricePointEntry);
+
+    abstract void setLevelPrice(long pricePointEntry, long price);
+
+    abstract boolean fits(long value);
+
+    abstract boolean isCompact();
+
+    /**
+     * {@link OrderBookEntry} with address links, queue sequences in a column after the details.
+     */
+    private static final class Regular extends EntryLayout {
+        private static final int DETAILS_SIZE = 24;
+        private static final int SEQUENCE_SIZE = 4;
+
+        private Regular() {
+            super(OrderBookEntry.SIZE, DETAILS_SIZE, SEQUENCE_SIZE, PricePointEntry.SIZE);
+        }
+
+        @Override
+        void initSlot(long orderBookEntry, long slot) {
+            OrderBookEntry.setChunk(orderBookEntry, (int) (slot >>> CHUNK_SHIFT));
+        }
+
+        @Override
+        long getSlot(long orderBookEntry) {
+            long chunk = OrderBookEntry.getChunk(orderBookEntry);
+            return (chunk << CHUNK_SHIFT) + (orderBookEntry - getChunk((int) chunk)) / OrderBookEntry.SIZE;
+        }
+
+        @Override
+        void writeLinks(long orderBookEntry) {
+            OrderBookEntry.setNext(orderBookEntry, toSlotRef(OrderBookEntry.getNext(orderBookEntry)));
+            OrderBookEntry.setPrev(orderBookEntry, toSlotRef(OrderBookEntry.getPrev(orderBookEntry)));
+        }
+
+        @Override
+        void readLinks(long orderBookEntry) {
+            OrderBookEntry.setNext(orderBookEntry, fromSlotRef(OrderBookEntry.getNext(orderBookEntry)));
+            OrderBookEntry.setPrev(orderBookEntry, fromSlotRef(OrderBookEntry.getPrev(orderBookEntry)));
+        }
+
+        @Override
+        long getSize(long orderBookEntry) {
+            return OrderBookEntry.getSize(orderBookEntry);
+        }
+
+        @Override
+        void setSize(long orderBookEntry, long size) {
+            OrderBookEntry.setSize(orderBookEntry, size);
+        }
+
+        @Override
+        long getNext(long orderBookEntry) {
+            return OrderBookEntry.getNext(orderBookEntry);
+        }
+
+        @Override
+        void setNext(long orderBookEntry, long next) {
+            OrderBookEntry.setNext(orderBookEntry, next);
+        }
+
+        @Override
+        long getPrev(long orderBookEntry) {
+            return OrderBookEntry.getPrev(orderBookEntry);
+        }
+
+        @Override
+        void setPrev(long orderBookEntry, long prev) {
+            OrderBookEntry.setPrev(orderBookEntry, prev);
+        }
+
+        @Override
+        long getPrice(long orderBookEntry) {
+            return OrderBookEntry.getPrice(orderBookEntry);
+        }
+
+        @Override
+        void setPrice(long orderBookEntry, long price) {
+            OrderBookEntry.setPrice(orderBookEntry, price);
+        }
+
+        @Override
+        long getOrderID(long orderBookEntry) {
+            return OrderBookEntry.getOrderID(orderBookEntry);
+        }
+
+        @Override
+        void setOrderID(long orderBookEntry, long orderID) {
+            OrderBookEntry.setOrderID(orderBookEntry, orderID);
+        }
+
+        @Override
+        byte getSide(long orderBookEntry) {
+            return OrderBookEntry.getSide(orderBookEntry);
+        }
+
+        @Override
+        void setSide(long orderBookEntry, byte side) {
+            OrderBookEntry.setSide(orderBookEntry, side);
+        }
+
+        @Override
+        byte getType(long orderBookEntry) {
+            return OrderBookEntry.getType(orderBookEntry);
+        }
+
+        @Override
+        void setType(long orderBookEntry, byte type) {
+            OrderBookEntry.setType(orderBookEntry, type);
+        }
+
+        @Override
+        int getOwner(long orderBookEntry) {
+            return OrderBookEntry.getOwner(orderBookEntry);
+        }
+
+        @Override
+        void setOwner(long orderBookEntry, int owner) {
+            OrderBookEntry.setOwner(orderBookEntry, owner);
+        }
+
+        @Override
+        long getReserve(long orderBookEntry) {
+            return OrderBookEntry.getReserve(orderBookEntry);
+        }
+
+        @Override
+        void setReserve(long orderBookEntry, long reserve) {
+            OrderBookEntry.setReserve(orderBookEntry, reserve);
+        }
+
+        @Override
+        long getStopLimitPrice(long orderBookEntry) {
+            return OrderBookEntry.getStopLimitPrice(orderBookEntry);
+        }
+
+        @Override
+        void setStopLimitPrice(long orderBookEntry, long price) {
+            OrderBookEntry.setStopLimitPrice(orderBookEntry, price);
+        }
+
+        @Override
+        long getDisplaySize(long orderBookEntry) {
+            return OrderBookEntry.getDisplaySize(orderBookEntry);
+        }
+
+        @Override
+        void setDisplaySize(long orderBookEntry, long displaySize) {
+            OrderBookEntry.setDisplaySize(orderBookEntry, displaySize);
+        }
+
+        @Override
+        long getOriginalSize(long orderBookEntry) {
+            return Unsafe.getUnsafe().getLong(getDetails(orderBookEntry));
+        }
+
+        @Override
+        void setOriginalSize(long orderBookEntry, long originalSize) {
+            Unsafe.getUnsafe().putLong(getDetails(orderBookEntry), originalSize);
+        }
+
+        @Override
+        long getTimestamp(long orderBookEntry) {
+            return Unsafe.getUnsafe().getLong(getDetails(orderBookEntry) + 8);
+        }
+
+        @Override
+        void setTimestamp(long orderBookEntry, long timestamp) {
+            Unsafe.getUnsafe().putLong(getDetails(orderBookEntry) + 8, timestamp);
+        }
+
+        @Override
+        long getQueueStart(long orderBookEntry) {
+            return Unsafe.getUnsafe().getLong(getDetails(orderBookEntry) + 16);
+        }
+
+        @Override
+        int getQueueSequence(long orderBookEntry) {
+            return Unsafe.getUnsafe().getInt(getSequence(orderBookEntry));
+        }
+
+        @Override
+        void setQueuePosition(long orderBookEntry, long start, int sequence) {
+            Unsafe.getUnsafe().putLong(getDetails(orderBookEntry) + 16, start);
+            Unsafe.getUnsafe().putInt(getSequence(orderBookEntry), sequence);
+        }
+
+        @Override
+        long getLevelSize(long pricePointEntry) {
+            return PricePointEntry.getSize(pricePointEntry);
+        }
+
+        @Override
+        void setLevelSize(long pricePointEntry, long size) {
+            PricePointEntry.setSize(pricePointEntry, size);
+        }
+
+        @Override
+        long getOrderListHead(long pricePointEntry) {
+            return PricePointEntry.getOrderListHead(pricePointEntry);
+        }
+
+        @Override
+        void setOrderListHead(long pricePointEntry, long orderBookEntry) {
+            PricePointEntry.setOrderListHead(pricePointEntry, orderBookEntry);
+        }
+
+        @Override
+        long getOrderListTail(long pricePointEntry) {
+            return PricePointEntry.getOrderListTail(pricePointEntry);
+        }
+
+        @Override
+        void setOrderListTail(long pricePointEntry, long orderBookEntry) {
+            PricePointEntry.setOrderListTail(pricePointEntry, orderBookEntry);
+        }
+
+        @Override
+        long getLevelPrice(long pricePointEntry) {
+            return PricePointEntry.getPrice(pricePointEntry);
+        }
+
+        @Override
+        void setLevelPrice(long pricePointEntry, long price) {
+            PricePointEntry.setPrice(pricePointEntry, price);
+        }
+
+        @Override
+        boolean fits(long value) {
+            return true;
+        }
+
+        @Override
+        boolean isCompact() {
+            return false;
+        }
+    }
+
+    /**
+     * {@link CompactOrderBookEntry} and {@link CompactPricePointEntry} with slot reference links, details
+     * hold the rest of the order.
+     */
+    private static final class Compact extends EntryLayout {
+        // 54 bytes used, queue sequence included, the rest keeps longs of the next slot aligned
+        private static final int DETAILS_SIZE = 56;
+        private static final int ORDER_ID = 0;
+        private static final int ORIGINAL_SIZE = 8;
+        private static final int TIMESTAMP = 16;
+        private static final int QUEUE_START = 24;
+        private static final int PRICE = 32;
+        private static final int RESERVE = 36;
+        private static final int DISPLAY_SIZE = 40;
+        private static final int OWNER = 44;
+        private static final int QUEUE_SEQUENCE = 48;
+        private static final int SIDE = 52;
+        private static final int TYPE = 53;
+        // display sizes are positive, zero stands for order that is not an iceberg
+        private static final int NO_DISPLAY_SIZE = 0;
+
+        private Compact() {
+            super(CompactOrderBookEntry.SIZE, DETAILS_SIZE, 0, CompactPricePointEntry.SIZE);
+        }
+
+        @Override
+        void initSlot(long orderBookEntry, long slot) {
+            CompactOrderBookEntry.setSlot(orderBookEntry, slot);
+        }
+
+        @Override
+        long getSlot(long orderBookEntry) {
+            return CompactOrderBookEntry.getSlot(orderBookEntry);
+        }
+
+        @Override
+        void writeLinks(long orderBookEntry) {
+        }
+
+        @Override
+        void readLinks(long orderBookEntry) {
+        }
+
+        @Override
+        long getSize(long orderBookEntry) {
+            return CompactOrderBookEntry.getSize(orderBookEntry);
+        }
+
+        @Override
+        void setSize(long orderBookEntry, long size) {
+            CompactOrderBookEntry.setSize(orderBookEntry, size);
+        }
+
+        @Override
+        long getNext(long orderBookEntry) {
+            return fromSlotRef(CompactOrderBookEntry.getNext(orderBookEntry));
+        }
+
+        @Override
+        void setNext(long orderBookEntry, long next) {
+            CompactOrderBookEntry.setNext(orderBookEntry, toSlotRef(next));
+        }
+
+        @Override
+        long getPrev(long orderBookEntry) {
+            return fromSlotRef(CompactOrderBookEntry.getPrev(orderBookEntry));
+        }
+
+        @Override
+        void setPrev(long orderBookEntry, long prev) {
+            CompactOrderBookEntry.setPrev(orderBookEntry, toSlotRef(prev));
+        }
+
+        @Override
+        long getPrice(long orderBookEntry) {
+            return Unsafe.getUnsafe().getInt(getDetails(orderBookEntry) + PRICE);
+        }
+
+        @Override
+        void setPrice(long orderBookEntry, long price) {
+            Unsafe.getUnsafe().putInt(getDetails(orderBookEntry) + PRICE, Math.toIntExact(price));
+        }
+
+        @Override
+        long getOrderID(long orderBookEntry) {
+            return Unsafe.getUnsafe().getLong(getDetails(orderBookEntry) + ORDER_ID);
+        }
+
+        @Override
+        void setOrderID(long orderBookEntry, long orderID) {
+            Unsafe.getUnsafe().putLong(getDetails(orderBookEntry) + ORDER_ID, orderID);
+        }
+
+        @Override
+        byte getSide(long orderBookEntry) {
+            return Unsafe.getUnsafe().getByte(getDetails(orderBookEntry) + SIDE);
+        }
+
+        @Override
+        void setSide(long orderBookEntry, byte side) {
+            Unsafe.getUnsafe().putByte(getDetails(orderBookEntry) + SIDE, side);
+        }
+
+        @Override
+        byte getType(long orderBookEntry) {
+            return Unsafe.getUnsafe().getByte(getDetails(orderBookEntry) + TYPE);
+        }
+
+        @Override
+        void setType(long orderBookEntry, byte type) {
+            Unsafe.getUnsafe().putByte(getDetails(orderBookEntry) + TYPE, type);
+        }
+
+        @Override
+        int getOwner(long orderBookEntry) {
+            return Unsafe.getUnsafe().getInt(getDetails(orderBookEntry) + OWNER);
+        }
+
+        @Override
+        void setOwner(long orderBookEntry, int owner) {
+            Unsafe.getUnsafe().putInt(getDetails(orderBookEntry) + OWNER, owner);
+        }
+
+        @Override
+        long getReserve(long orderBookEntry) {
+            return Unsafe.getUnsafe().getInt(getDetails(orderBookEntry) + RESERVE);
+        }
+
+        @Override
+        void setReserve(long orderBookEntry, long reserve) {
+            Unsafe.getUnsafe().putInt(getDetails(orderBookEntry) + RESERVE, Math.toIntExact(reserve));
+        }
+
+        @Override
+        long getStopLimitPrice(long orderBookEntry) {
+            return Unsafe.getUnsafe().getInt(getDetails(orderBookEntry) + RESERVE);
+        }
+
+        @Override
+        void setStopLimitPrice(long orderBookEntry, long price) {
+            Unsafe.getUnsafe().putInt(getDetails(orderBookEntry) + RESERVE, Math.toIntExact(price));
+        }
+
+        @Override
+        long getDisplaySize(long orderBookEntry) {
+            int displaySize = Unsafe.getUnsafe().getInt(getDetails(orderBookEntry) + DISPLAY_SIZE);
+            return displaySize == NO_DISPLAY_SIZE ? Long.MAX_VALUE : displaySize;
+        }
+
+        @Override
+        void setDisplaySize(long orderBookEntry, long displaySize) {
+            int value = displaySize == Long.MAX_VALUE ? NO_DISPLAY_SIZE : Math.toIntExact(displaySize);
+            Unsafe.getUnsafe().putInt(getDetails(orderBookEntry) + DISPLAY_SIZE, value);
+        }
+
+        @Override
+        long getOriginalSize(long orderBookEntry) {
+            return Unsafe.getUnsafe().getLong(getDetails(orderBookEntry) + ORIGINAL_SIZE);
+        }
+
+        @Override
+        void setOriginalSize(long orderBookEntry, long originalSize) {
+            Unsafe.getUnsafe().putLong(getDetails(orderBookEntry) + ORIGINAL_SIZE, originalSize);
+        }
+
+        @Override
+        long getTimestamp(long orderBookEntry) {
+            return Unsafe.getUnsafe().getLong(getDetails(orderBookEntry) + TIMESTAMP);
+        }
+
+        @Override
+        void setTimestamp(long orderBookEntry, long timestamp) {
+            Unsafe.getUnsafe().putLong(getDetails(orderBookEntry) + TIMESTAMP, timestamp);
+        }
+
+        @Override
+        long getQueueStart(long orderBookEntry) {
+            return Unsafe.getUnsafe().getLong(getDetails(orderBookEntry) + QUEUE_START);
+        }
+
+        @Override
+        int getQueueSequence(long orderBookEntry) {
+            return Unsafe.getUnsafe().getInt(getDetails(orderBookEntry) + QUEUE_SEQUENCE);
+        }
+
+        @Override
+        void setQueuePosition(long orderBookEntry, long start, int sequence) {
+            long details = getDetails(orderBookEntry);
+            Unsafe.getUnsafe().putLong(details + QUEUE_START, start);
+            Unsafe.getUnsafe().putInt(details + QUEUE_SEQUENCE, sequence);
+        }
+
+        @Override
+        long getLevelSize(long pricePointEntry) {
+            return CompactPricePointEntry.getSize(pricePointEntry);
+        }
+
+        @Override
+        void setLevelSize(long pricePointEntry, long size) {
+            CompactPricePointEntry.setSize(pricePointEntry, size);
+        }
+
+        @Override
+        long getOrderListHead(long pricePointEntry) {
+            return fromSlotRef(CompactPricePointEntry.getOrderListHead(pricePointEntry));
+        }
+
+        @Override
+        void setOrderListHead(long pricePointEntry, long orderBookEntry) {
+            CompactPricePointEntry.setOrderListHead(pricePointEntry, toSlotRef(orderBookEntry));
+        }
+
+        @Override
+        long getOrderListTail(long pricePointEntry) {
+            return fromSlotRef(CompactPricePointEntry.getOrderListTail(pricePointEntry));
+        }
+
+        @Override
+        void setOrderListTail(long pricePointEntry, long orderBookEntry) {
+            CompactPricePointEntry.setOrderListTail(pricePointEntry, toSlotRef(orderBookEntry));
+        }
+
+        @Override
+        long getLevelPrice(long pricePointEntry) {
+            return CompactPricePointEntry.getPrice(pricePointEntry);
+        }
+
+        @Override
+        void setLevelPrice(long pricePointEntry, long price) {
+            CompactPricePointEntry.setPrice(pricePointEntry, price);
+        }
+
+        @Override
+        boolean fits(long value) {
+            return CompactPricePointEntry.fits(value);
+        }
+
+        @Override
+        boolean isCompact() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.appsicle.orderbook;
+
+/**
+ * Consumes execution reports emitted by OrderBook in batches. Reports are laid out back to back,
+ * {@link com.appsicle.orderbook.model.ExecutionReport#SIZE} bytes apart. In trade report mode the
+ * batch consists of {@link com.appsicle.orderbook.model.TradeReport} records of the same size.
+ * Batch memory is reused once this method returns.
+ */
+@FunctionalInterface
+public interface ExecutionReportBatchHandler {
+    void onExecutions(long executionReports, long count);
+}
@@ -2,7 +2,8 @@ package com.appsicle.orderbook;
 
 /**
  * Consumes execution reports emitted by MatchingEngine when orders are crossed.
- * To access execution report attributes use {@link com.appsicle.orderbook.model.ExecutionReport}
+ * To access execution report attributes use {@link com.appsicle.orderbook.model.ExecutionReport}, or
+ * {@link com.appsicle.orderbook.model.TradeReport} when order book is created in trade report mode.
  */
 @FunctionalInterface
 public interface ExecutionReportHandler {
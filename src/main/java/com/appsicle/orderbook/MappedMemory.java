@@ -0,0 +1,28 @@
+package com.appsicle.orderbook;
+
+import com.questdb.std.Unsafe;
+
+import java.nio.Buffer;
+
+/**
+ * Access to native memory of mapped files and direct buffers. Buffer must stay reachable for as long
+ * as its memory is used, it is unmapped or freed when garbage collected.
+ */
+final class MappedMemory {
+    private static final long BUFFER_ADDRESS_OFFSET;
+
+    private MappedMemory() {
+    }
+
+    static long getAddress(Buffer buffer) {
+        return Unsafe.getUnsafe().getLong(buffer, BUFFER_ADDRESS_OFFSET);
+    }
+
+    static {
+        try {
+            BUFFER_ADDRESS_OFFSET = Unsafe.getUnsafe().objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.Order;
+
+import java.io.Closeable;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Matches orders for many symbols on a fixed number of {@link MatchingThread} shards, each with its own
+ * {@link OrderQueue} and order books. Symbols are routed to shards by hash unless routing is supplied.
+ */
+public class MatchingEngine implements Closeable {
+    private final int symbolCount;
+    private final int[] symbolShards;
+    private final OrderQueue[] queues;
+    private final MatchingThread[] threads;
+    private final Shard[] shards;
+
+    public MatchingEngine(int shardCount, int symbolCount, OrderBookFactory factory, long queueCapacity, WaitStrategy waitStrategy, int batchSize) {
+        this(shardCount, symbolCount, symbol -> hash(symbol, shardCount), factory, queueCapacity, waitStrategy, batchSize);
+    }
+
+    /**
+     * @param router maps symbol to shard index, it is called once per symbol on construction.
+     */
+    public MatchingEngine(int shardCount, int symbolCount, IntUnaryOperator router, OrderBookFactory factory, long queueCapacity, WaitStrategy waitStrategy, int batchSize) {
+        this.symbolCount = symbolCount;
+        this.symbolShards = new int[symbolCount];
+        this.queues = new OrderQueue[shardCount];
+        this.threads = new MatchingThread[shardCount];
+        this.shards = new Shard[shardCount];
+
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(symbolCount);
+            queues[i] = new OrderQueue(queueCapacity);
+            threads[i] = new MatchingThread("matching-shard-" + i, queues[i], shards[i], waitStrategy, batchSize);
+        }
+
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            int shard = router.applyAsInt(symbol);
+            assert shard > -1 && shard < shardCount;
+            symbolShards[symbol] = shard;
+            shards[shard].books[symbol] = factory.newInstance(symbol, shard);
+        }
+    }
+
+    private static int hash(int symbol, int shardCount) {
+        int h = symbol * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shardCount;
+    }
+
+    public void start() {
+        for (MatchingThread thread : threads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops all shards after they have matched orders published so far and closes order books.
+     */
+    @Override
+    public void close() {
+        for (MatchingThread thread : threads) {
+            thread.close();
+        }
+        for (Shard shard : shards) {
+            for (OrderBook book : shard.books) {
+                if (book != null) {
+                    book.close();
+                }
+            }
+        }
+        for (OrderQueue queue : queues) {
+            queue.close();
+        }
+    }
+
+    /**
+     * Queues order to the shard of its symbol. Safe to call from any number of threads.
+     *
+     * @return false when shard queue is full.
+     */
+    public boolean offer(long order) {
+        int symbol = Order.getSymbol(order);
+        assert symbol > -1 && symbol < symbolCount;
+        return queues[symbolShards[symbol]].offer(order);
+    }
+
+    public boolean offer(int symbol, byte side, long price, long size) {
+        assert symbol > -1 && symbol < symbolCount;
+        return queues[symbolShards[symbol]].offer(symbol, side, price, size);
+    }
+
+    /**
+     * Queues cancel to the shard of the symbol, it is applied in order with orders queued before it.
+     * Safe to call from any number of threads.
+     *
+     * @return false when shard queue is full.
+     */
+    public boolean offerCancel(int symbol, long orderID) {
+        assert symbol > -1 && symbol < symbolCount;
+        return queues[symbolShards[symbol]].offerCancel(symbol, orderID);
+    }
+
+    /**
+     * Queues amend to the shard of the symbol. Safe to call from any number of threads.
+     *
+     * @return false when shard queue is full.
+     */
+    public boolean offerAmend(int symbol, long orderID, long newPrice, long newSize) {
+        assert symbol > -1 && symbol < symbolCount;
+        return queues[symbolShards[symbol]].offerAmend(symbol, orderID, newPrice, newSize);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int getShard(int symbol) {
+        return symbolShards[symbol];
+    }
+
+    public long getShardOrderCount(int shard) {
+        return threads[shard].getOrderCount();
+    }
+
+    public long getShardIdleCount(int shard) {
+        return threads[shard].getIdleCount();
+    }
+
+    /**
+     * @return number of orders, cancels and amends applied for the symbol.
+     */
+    public long getSymbolOrderCount(int symbol) {
+        return shards[symbolShards[symbol]].symbolOrderCounts[symbol];
+    }
+
+    private static class Shard implements OrderHandler {
+        private final OrderBook[] books;
+        private final long[] symbolOrderCounts;
+
+        private Shard(int symbolCount) {
+            this.books = new OrderBook[symbolCount];
+            this.symbolOrderCounts = new long[symbolCount];
+        }
+
+        @Override
+        public void onOrder(long order) {
+            int symbol = Order.getSymbol(order);
+            OrderQueue.apply(order, books[symbol]);
+            symbolOrderCounts[symbol]++;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.appsicle.orderbook;
+
+import java.io.Closeable;
+
+/**
+ * Single thread that owns an {@link OrderBook} and feeds it with orders from {@link OrderQueue}.
+ * Orders, cancels and amends are applied straight from queue memory, in batches of up to batchSize.
+ * Order book must not be accessed by any other thread while this one runs.
+ */
+public class MatchingThread implements Closeable {
+    private final OrderQueue queue;
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final OrderHandler handler;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long orderCount;
+    private long idleCount;
+
+    public MatchingThread(String name, OrderQueue queue, OrderBook orderBook, WaitStrategy waitStrategy, int batchSize) {
+        this(name, queue, (OrderHandler) record -> OrderQueue.apply(record, orderBook), waitStrategy, batchSize);
+    }
+
+    /**
+     * @param handler receives every order taken off the queue, it is only called from this thread.
+     */
+    public MatchingThread(String name, OrderQueue queue, OrderHandler handler, WaitStrategy waitStrategy, int batchSize) {
+        this.queue = queue;
+        this.waitStrategy = waitStrategy;
+        this.batchSize = batchSize;
+        this.handler = handler;
+        this.thread = new Thread(this::run, name);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the thread after it has matched all orders published so far and waits for it to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of orders taken off the queue. Value is approximate when read from other threads.
+     */
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * @return number of times queue was found empty. Value is approximate when read from other threads.
+     */
+    public long getIdleCount() {
+        return idleCount;
+    }
+
+    private void run() {
+        while (running) {
+            int count = queue.drain(handler, batchSize);
+            if (count == 0) {
+                idleCount++;
+                waitStrategy.idle();
+            } else {
+                orderCount += count;
+            }
+        }
+
+        int count;
+        while ((count = queue.drain(handler, batchSize)) > 0) {
+            // drain orders published before stop
+            orderCount += count;
+        }
+    }
+}
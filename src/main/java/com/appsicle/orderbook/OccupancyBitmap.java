@@ -0,0 +1,153 @@
+package com.appsicle.orderbook;
+
+import com.questdb.std.Unsafe;
+
+/**
+ * Two level bitmap laid out in a single block of memory: word count header, summary words
+ * and bit words. Every summary bit tells whether corresponding 64-bit word has any bits set,
+ * so a search skips 4096 empty bits with a single summary word read.
+ */
+final class OccupancyBitmap {
+
+    private OccupancyBitmap() {
+    }
+
+    static long getMemSize(long bitCount) {
+        long wordCount = (bitCount + 63) >>> 6;
+        return 8 + (getSummaryCount(wordCount) + wordCount) * 8;
+    }
+
+    /**
+     * Clears bitmap memory, which must be at least {@link #getMemSize(long)} bytes.
+     */
+    static void init(long bitmap, long bitCount) {
+        Unsafe.getUnsafe().setMemory(bitmap, getMemSize(bitCount), (byte) 0);
+        Unsafe.getUnsafe().putLong(bitmap, (bitCount + 63) >>> 6);
+    }
+
+    static void set(long bitmap, long bit) {
+        long word = bit >>> 6;
+        long wordAddress = getWordAddress(bitmap, word);
+        Unsafe.getUnsafe().putLong(wordAddress, Unsafe.getUnsafe().getLong(wordAddress) | (1L << bit));
+        long summaryAddress = getSummaryAddress(bitmap, word >>> 6);
+        Unsafe.getUnsafe().putLong(summaryAddress, Unsafe.getUnsafe().getLong(summaryAddress) | (1L << word));
+    }
+
+    static void clear(long bitmap, long bit) {
+        long word = bit >>> 6;
+        long wordAddress = getWordAddress(bitmap, word);
+        long value = Unsafe.getUnsafe().getLong(wordAddress) & ~(1L << bit);
+        Unsafe.getUnsafe().putLong(wordAddress, value);
+        if (value == 0) {
+            long summaryAddress = getSummaryAddress(bitmap, word >>> 6);
+            Unsafe.getUnsafe().putLong(summaryAddress, Unsafe.getUnsafe().getLong(summaryAddress) & ~(1L << word));
+        }
+    }
+
+    /**
+     * @return index of the lowest set bit at or above given bit, -1 if there is none.
+     */
+    static long nextSetBit(long bitmap, long bit) {
+        if (bit < 0) {
+            bit = 0;
+        }
+        long wordCount = getWordCount(bitmap);
+        long word = bit >>> 6;
+        if (word >= wordCount) {
+            return -1;
+        }
+
+        long value = Unsafe.getUnsafe().getLong(getWordAddress(bitmap, word)) & (-1L << bit);
+        if (value != 0) {
+            return (word << 6) + Long.numberOfTrailingZeros(value);
+        }
+
+        word++;
+        if (word >= wordCount) {
+            return -1;
+        }
+
+        long summaryCount = getSummaryCount(wordCount);
+        long summary = word >>> 6;
+        long summaryValue = Unsafe.getUnsafe().getLong(getSummaryAddress(bitmap, summary)) & (-1L << word);
+        while (summaryValue == 0) {
+            if (++summary >= summaryCount) {
+                return -1;
+            }
+            summaryValue = Unsafe.getUnsafe().getLong(getSummaryAddress(bitmap, summary));
+        }
+        word = (summary << 6) + Long.numberOfTrailingZeros(summaryValue);
+        return (word << 6) + Long.numberOfTrailingZeros(Unsafe.getUnsafe().getLong(getWordAddress(bitmap, word)));
+    }
+
+    /**
+     * @return index of the highest set bit at or below given bit, -1 if there is none.
+     */
+    static long prevSetBit(long bitmap, long bit) {
+        if (bit < 0) {
+            return -1;
+        }
+        long wordCount = getWordCount(bitmap);
+        long word = bit >>> 6;
+        if (word >= wordCount) {
+            word = wordCount - 1;
+            bit = -1;
+        }
+
+        long value = Unsafe.getUnsafe().getLong(getWordAddress(bitmap, word)) & (-1L >>> (63 - (bit & 63)));
+        if (value != 0) {
+            return (word << 6) + 63 - Long.numberOfLeadingZeros(value);
+        }
+
+        if (word == 0) {
+            return -1;
+        }
+        word--;
+
+        long summary = word >>> 6;
+        long summaryValue = Unsafe.getUnsafe().getLong(getSummaryAddress(bitmap, summary)) & (-1L >>> (63 - (word & 63)));
+        while (summaryValue == 0) {
+            if (--summary < 0) {
+                return -1;
+            }
+            summaryValue = Unsafe.getUnsafe().getLong(getSummaryAddress(bitmap, summary));
+        }
+        word = (summary << 6) + 63 - Long.numberOfLeadingZeros(summaryValue);
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(Unsafe.getUnsafe().getLong(getWordAddress(bitmap, word)));
+    }
+
+    /**
+     * @return number of set bits between fromBit and toBit, both inclusive.
+     */
+    static long countSetBits(long bitmap, long fromBit, long toBit) {
+        if (fromBit > toBit) {
+            return 0;
+        }
+        long fromWord = fromBit >>> 6;
+        long toWord = toBit >>> 6;
+        if (fromWord == toWord) {
+            return Long.bitCount(Unsafe.getUnsafe().getLong(getWordAddress(bitmap, fromWord)) & (-1L << fromBit) & (-1L >>> (63 - (toBit & 63))));
+        }
+        long count = Long.bitCount(Unsafe.getUnsafe().getLong(getWordAddress(bitmap, fromWord)) & (-1L << fromBit));
+        for (long word = fromWord + 1; word < toWord; word++) {
+            count += Long.bitCount(Unsafe.getUnsafe().getLong(getWordAddress(bitmap, word)));
+        }
+        return count + Long.bitCount(Unsafe.getUnsafe().getLong(getWordAddress(bitmap, toWord)) & (-1L >>> (63 - (toBit & 63))));
+    }
+
+    private static long getSummaryCount(long wordCount) {
+        return (wordCount + 63) >>> 6;
+    }
+
+    private static long getWordCount(long bitmap) {
+        return Unsafe.getUnsafe().getLong(bitmap);
+    }
+
+    private static long getSummaryAddress(long bitmap, long summary) {
+        return bitmap + 8 + summary * 8;
+    }
+
+    private static long getWordAddress(long bitmap, long word) {
+        return bitmap + 8 + (getSummaryCount(getWordCount(bitmap)) + word) * 8;
+    }
+}
@@ -4,263 +4,1539 @@ import com.appsicle.orderbook.model.*;
 import com.questdb.std.Unsafe;
 
 import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class OrderBook implements Closeable {
+    /**
+     * Number of best levels per side that {@link #getEntryAtBidLevel(long)} and {@link #getEntryAtAskLevel(long)}
+     * read from cache.
+     */
+    public static final int CACHED_LEVELS = 16;
+
+    // snapshot header layout
+    private static final long SNAPSHOT_MAGIC = 0x4f42534e41500008L;
+    private static final int SNAPSHOT_ORDER_ID = 8;
+    private static final int SNAPSHOT_TRADE_ID = 16;
+    private static final int SNAPSHOT_MAX_BID = 24;
+    private static final int SNAPSHOT_MIN_ASK = 32;
+    private static final int SNAPSHOT_BID_LEVEL_COUNT = 40;
+    private static final int SNAPSHOT_ASK_LEVEL_COUNT = 48;
+    private static final int SNAPSHOT_ENTRY_SIZE = 56;
+    private static final int SNAPSHOT_ORDER_BOOK_USED = 64;
+    private static final int SNAPSHOT_FREE_LIST = 72;
+    private static final int SNAPSHOT_JOURNAL_RECORD_COUNT = 80;
+    private static final int SNAPSHOT_LAST_TRADE_PRICE = 88;
+    private static final int SNAPSHOT_LAST_TRADE_SIZE = 96;
+    private static final int SNAPSHOT_BUY_STOP_LEVEL_COUNT = 104;
+    private static final int SNAPSHOT_SELL_STOP_LEVEL_COUNT = 112;
+    private static final int SNAPSHOT_HEADER_SIZE = 128;
+    // snapshot price point layout, the same for regular and compact entries
+    private static final int SNAPSHOT_LEVEL_SIZE_OFFSET = 0;
+    private static final int SNAPSHOT_LEVEL_HEAD = 8;
+    private static final int SNAPSHOT_LEVEL_TAIL = 16;
+    private static final int SNAPSHOT_LEVEL_PRICE = 24;
+    private static final int SNAPSHOT_LEVEL_SIZE = 32;
+    private static final long NO_SPARE_CHUNK = 0;
+    private static final long CLOSED = -1;
+
+    private final EntryLayout layout;
     private final ExecutionReportHandler onExecution;
-    private final long executionReport;
+    private final ExecutionReportBatchHandler onExecutionBatch;
+    private final long executionReports;
+    private final long executionReportsLimit;
+    private final boolean tradeReports;
+    private final OrderIndex orderIndex;
+    private final PriceLadder priceLadder;
+    private final PriceLadder buyStops;
+    private final PriceLadder sellStops;
+    private final DepthCache bidCache;
+    private final AtomicLong spareChunk = new AtomicLong(NO_SPARE_CHUNK);
+    private final Runnable pretouch = this::pretouchChunk;
+    private final DepthCache askCache;
+    private final long plainOrder;
     private long maxBid;
     private long minAsk;
-    private long pricePoints;
-    private long minPrice;
-    private long maxPrice;
-    private long maxOrders;
-    private long orderBook;
     private long orderID;
-    private long pricePointMemSize;
-    private long orderBookMemSize;
+    private long tradeID;
+    private long executionReport;
+    private long orderBookUsed;
+    private long freeList;
     private long bidLevelCount;
     private long askLevelCount;
+    private long lastTradePrice;
+    private long lastTradeSize;
+    // price range of trades since stop orders were last triggered
+    private long tradeHigh;
+    private long tradeLow;
+    // owner of order being matched, reported with its executions
+    private int aggressorOwner;
+    // time of order or amend being applied, journaled and replicated with it so that replay stamps orders the same
+    private long timestamp;
+    private long minBuyStop;
+    private long maxSellStop;
+    private long buyStopLevelCount;
+    private long sellStopLevelCount;
+    private OrderBookMetrics metrics;
+    private OrderJournal journal;
+    private ReplicationChannel replicationChannel;
+    private DepthListener depthListener;
+    private TopOfBook topOfBook;
+    private byte selfTradePrevention = SelfTradePrevention.NONE;
+    private Allocation allocation = Allocation.FIFO;
+    private Executor pretouchExecutor;
+
+    /**
+     * @param minPrice       lower bound of expected price range, orders outside of it are accepted.
+     * @param maxPrice       upper bound of expected price range, it sizes price page directory.
+     * @param expectedOrders expected number of resting orders, it sizes order index. Book grows past it.
+     */
+    public OrderBook(long minPrice, long maxPrice, long expectedOrders, ExecutionReportHandler onExecution) {
+        this(minPrice, maxPrice, expectedOrders, onExecution, null, 1, false, false);
+    }
+
+    /**
+     * @param tradeReports when true each trade is reported once with {@link TradeReport} record.
+     */
+    public OrderBook(long minPrice, long maxPrice, long expectedOrders, ExecutionReportHandler onExecution, boolean tradeReports) {
+        this(minPrice, maxPrice, expectedOrders, onExecution, null, 1, tradeReports, false);
+    }
+
+    /**
+     * @param compact when true sizes and prices are stored in 32 bits, orders that do not fit are rejected.
+     */
+    public OrderBook(long minPrice, long maxPrice, long expectedOrders, ExecutionReportHandler onExecution, boolean tradeReports, boolean compact) {
+        this(minPrice, maxPrice, expectedOrders, onExecution, null, 1, tradeReports, compact);
+    }
+
+    /**
+     * Creates order book that delivers execution reports in batches, once per call.
+     *
+     * @param batchSize maximum number of execution reports in one batch.
+     */
+    public OrderBook(long minPrice, long maxPrice, long expectedOrders, ExecutionReportBatchHandler onExecutionBatch, int batchSize) {
+        this(minPrice, maxPrice, expectedOrders, null, onExecutionBatch, batchSize, false, false);
+    }
+
+    /**
+     * @param tradeReports when true batch consists of {@link TradeReport} records, one per trade.
+     */
+    public OrderBook(long minPrice, long maxPrice, long expectedOrders, ExecutionReportBatchHandler onExecutionBatch, int batchSize, boolean tradeReports) {
+        this(minPrice, maxPrice, expectedOrders, null, onExecutionBatch, batchSize, tradeReports, false);
+    }
+
+    /**
+     * @param compact see {@link #OrderBook(long, long, long, ExecutionReportHandler, boolean, boolean)}
+     */
+    public OrderBook(long minPrice, long maxPrice, long expectedOrders, ExecutionReportBatchHandler onExecutionBatch, int batchSize, boolean tradeReports, boolean compact) {
+        this(minPrice, maxPrice, expectedOrders, null, onExecutionBatch, batchSize, tradeReports, compact);
+    }
 
-    public OrderBook(long minPrice, long maxPrice, long maxOrders, ExecutionReportHandler onExecution) {
-        this.minPrice = minPrice;
-        this.maxPrice = maxPrice;
-        this.pricePointMemSize = (maxPrice - minPrice + 1) * PricePointEntry.SIZE   ;
-        this.pricePoints = Unsafe.malloc(this.pricePointMemSize);
-        this.orderBookMemSize = maxOrders * OrderBookEntry.SIZE;
-        Unsafe.getUnsafe().setMemory(this.pricePoints, this.pricePointMemSize, (byte) 0);
-        this.minAsk = maxPrice + 1;
-        this.maxBid = minPrice - 1;
+    private OrderBook(long minPrice, long maxPrice, long expectedOrders, ExecutionReportHandler onExecution, ExecutionReportBatchHandler onExecutionBatch, int batchSize, boolean tradeReports, boolean compact) {
+        assert batchSize > 0;
+        assert ExecutionReport.SIZE == TradeReport.SIZE;
+        this.layout = EntryLayout.create(compact);
+        this.priceLadder = new PriceLadder(minPrice, maxPrice, layout.getPricePointSize());
+        this.buyStops = new PriceLadder(minPrice, maxPrice, layout.getPricePointSize());
+        this.sellStops = new PriceLadder(minPrice, maxPrice, layout.getPricePointSize());
+        this.minAsk = PriceLadder.NO_PRICE_ABOVE;
+        this.maxBid = PriceLadder.NO_PRICE_BELOW;
+        this.tradeHigh = PriceLadder.NO_PRICE_BELOW;
+        this.tradeLow = PriceLadder.NO_PRICE_ABOVE;
+        this.minBuyStop = PriceLadder.NO_PRICE_ABOVE;
+        this.maxSellStop = PriceLadder.NO_PRICE_BELOW;
         this.orderID = 0;
-        this.orderBook = Unsafe.malloc(orderBookMemSize);
-        Unsafe.getUnsafe().setMemory(this.orderBook, this.orderBookMemSize, (byte) 0);
         this.onExecution = onExecution;
-        this.executionReport = Unsafe.malloc(ExecutionReport.SIZE);
-        this.maxOrders = maxOrders;
+        this.onExecutionBatch = onExecutionBatch;
+        this.executionReports = Unsafe.malloc(batchSize * ExecutionReport.SIZE);
+        this.executionReportsLimit = executionReports + batchSize * ExecutionReport.SIZE;
+        this.executionReport = executionReports;
+        this.tradeReports = tradeReports;
+        this.orderIndex = new OrderIndex(expectedOrders);
+        this.bidCache = new DepthCache(CACHED_LEVELS, true, layout);
+        this.askCache = new DepthCache(CACHED_LEVELS, false, layout);
+        this.plainOrder = Unsafe.malloc(Order.SIZE);
+        Order.init(plainOrder);
     }
 
     @Override
     public void close() {
-        Unsafe.free(orderBook, orderBookMemSize);
-        Unsafe.free(pricePoints, pricePointMemSize);
-        Unsafe.free(executionReport, ExecutionReport.SIZE);
+        for (int i = 0; i < layout.getChunkCount(); i++) {
+            Unsafe.free(layout.getChunk(i), layout.getChunkSize());
+        }
+        // chunk pre-touched after close frees itself
+        long spare = spareChunk.getAndSet(CLOSED);
+        if (spare != NO_SPARE_CHUNK) {
+            Unsafe.free(spare, layout.getChunkSize());
+        }
+        Unsafe.free(executionReports, executionReportsLimit - executionReports);
+        Unsafe.free(plainOrder, Order.SIZE);
+        orderIndex.close();
+        priceLadder.close();
+        buyStops.close();
+        sellStops.close();
+        bidCache.close();
+        askCache.close();
     }
 
-    private long getPricePointEntry(long price) {
-        return pricePoints + (price - minPrice) * PricePointEntry.SIZE;
+    /**
+     * Has no effect unless {@link OrderBookMetrics#ENABLED}, metrics must not be shared with other order books.
+     *
+     * @param metrics null detaches metrics
+     */
+    public void setMetrics(OrderBookMetrics metrics) {
+        this.metrics = metrics;
+        this.priceLadder.setMetrics(metrics);
+    }
+
+    /**
+     * Sets executor that allocates and touches the next chunk of order book entries before the book needs it.
+     *
+     * @param pretouchExecutor null stops pre-touching
+     */
+    public void setPretouchExecutor(Executor pretouchExecutor) {
+        this.pretouchExecutor = pretouchExecutor;
+        if (pretouchExecutor != null && spareChunk.get() == NO_SPARE_CHUNK) {
+            pretouchExecutor.execute(pretouch);
+        }
+    }
+
+    /**
+     * Attaches journal every order, cancel and amend is written to before it is applied.
+     *
+     * @param journal null detaches journal
+     */
+    public void setJournal(OrderJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Makes this order book primary: every order, cancel and amend is published to replicas before it is applied.
+     *
+     * @param replicationChannel null detaches channel
+     */
+    public void setReplicationChannel(ReplicationChannel replicationChannel) {
+        this.replicationChannel = replicationChannel;
     }
 
-    private long getOrderID(long orderBookEntry) {
-        return (orderBookEntry - orderBook) / OrderBookEntry.SIZE;
+    /**
+     * Writes snapshot of price points, used order book entry slots and book counters. Attached journal is synced first.
+     */
+    public void writeSnapshot(File file) throws IOException {
+        long journalRecordCount = 0;
+        if (journal != null) {
+            journal.sync();
+            journalRecordCount = journal.getRecordCount();
+        }
+
+        long levelsSize = (bidLevelCount + askLevelCount + buyStopLevelCount + sellStopLevelCount) * SNAPSHOT_LEVEL_SIZE;
+        long size = SNAPSHOT_HEADER_SIZE + levelsSize + layout.getSlotsSize(orderBookUsed);
+        assert size <= Integer.MAX_VALUE;
+
+        try (RandomAccessFile snapshotFile = new RandomAccessFile(file, "rw"); FileChannel channel = snapshotFile.getChannel()) {
+            snapshotFile.setLength(size);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            long snapshot = MappedMemory.getAddress(buffer);
+
+            Unsafe.getUnsafe().putLong(snapshot, SNAPSHOT_MAGIC);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_ORDER_ID, orderID);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_TRADE_ID, tradeID);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_MAX_BID, maxBid);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_MIN_ASK, minAsk);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_BID_LEVEL_COUNT, bidLevelCount);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_ASK_LEVEL_COUNT, askLevelCount);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_ENTRY_SIZE, layout.getEntrySize());
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_ORDER_BOOK_USED, orderBookUsed);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_FREE_LIST, layout.toSlotRef(freeList));
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_JOURNAL_RECORD_COUNT, journalRecordCount);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_LAST_TRADE_PRICE, lastTradePrice);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_LAST_TRADE_SIZE, lastTradeSize);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_BUY_STOP_LEVEL_COUNT, buyStopLevelCount);
+            Unsafe.getUnsafe().putLong(snapshot + SNAPSHOT_SELL_STOP_LEVEL_COUNT, sellStopLevelCount);
+
+            long level = snapshot + SNAPSHOT_HEADER_SIZE;
+            for (long bid = maxBid, i = 0; i < bidLevelCount; i++, level += SNAPSHOT_LEVEL_SIZE) {
+                writeLevel(getPricePointEntry(bid), level);
+                bid = priceLadder.prevOccupied(bid - 1);
+            }
+            for (long ask = minAsk, i = 0; i < askLevelCount; i++, level += SNAPSHOT_LEVEL_SIZE) {
+                writeLevel(getPricePointEntry(ask), level);
+                ask = priceLadder.nextOccupied(ask + 1);
+            }
+            // stop levels in trigger order, first of them restores minBuyStop and maxSellStop
+            for (long stop = minBuyStop, i = 0; i < buyStopLevelCount; i++, level += SNAPSHOT_LEVEL_SIZE) {
+                writeLevel(buyStops.getPricePointEntry(stop), level);
+                stop = buyStops.nextOccupied(stop + 1);
+            }
+            for (long stop = maxSellStop, i = 0; i < sellStopLevelCount; i++, level += SNAPSHOT_LEVEL_SIZE) {
+                writeLevel(sellStops.getPricePointEntry(stop), level);
+                stop = sellStops.prevOccupied(stop - 1);
+            }
+            layout.writeSlots(level, orderBookUsed);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Restores snapshot written by {@link #writeSnapshot(File)} into fresh order book.
+     *
+     * @return number of journal records snapshot covers, -1 if file is not a snapshot of this layout.
+     */
+    public long restoreSnapshot(File file) throws IOException {
+        assert orderBookUsed == 0 && bidLevelCount == 0 && askLevelCount == 0 && buyStopLevelCount == 0 && sellStopLevelCount == 0;
+
+        try (RandomAccessFile snapshotFile = new RandomAccessFile(file, "r"); FileChannel channel = snapshotFile.getChannel()) {
+            if (channel.size() < SNAPSHOT_HEADER_SIZE) {
+                return -1;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long snapshot = MappedMemory.getAddress(buffer);
+            if (Unsafe.getUnsafe().getLong(snapshot) != SNAPSHOT_MAGIC
+                    || Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_ENTRY_SIZE) != layout.getEntrySize()) {
+                return -1;
+            }
+
+            orderID = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_ORDER_ID);
+            tradeID = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_TRADE_ID);
+            maxBid = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_MAX_BID);
+            minAsk = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_MIN_ASK);
+            bidLevelCount = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_BID_LEVEL_COUNT);
+            askLevelCount = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_ASK_LEVEL_COUNT);
+            orderBookUsed = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_ORDER_BOOK_USED);
+            lastTradePrice = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_LAST_TRADE_PRICE);
+            lastTradeSize = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_LAST_TRADE_SIZE);
+            buyStopLevelCount = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_BUY_STOP_LEVEL_COUNT);
+            sellStopLevelCount = Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_SELL_STOP_LEVEL_COUNT);
+            while ((long) layout.getChunkCount() << EntryLayout.CHUNK_SHIFT < orderBookUsed) {
+                addChunk();
+            }
+            freeList = layout.fromSlotRef(Unsafe.getUnsafe().getLong(snapshot + SNAPSHOT_FREE_LIST));
+
+            long levels = snapshot + SNAPSHOT_HEADER_SIZE;
+            long stopLevels = levels + (bidLevelCount + askLevelCount) * SNAPSHOT_LEVEL_SIZE;
+            long sellStopLevels = stopLevels + buyStopLevelCount * SNAPSHOT_LEVEL_SIZE;
+            long levelsLimit = sellStopLevels + sellStopLevelCount * SNAPSHOT_LEVEL_SIZE;
+            layout.readSlots(levelsLimit, orderBookUsed);
+
+            restoreLevels(priceLadder, levels, stopLevels);
+            restoreLevels(buyStops, stopLevels, sellStopLevels);
+            restoreLevels(sellStops, sellStopLevels, levelsLimit);
+            if (buyStopLevelCount > 0) {
+                minBuyStop = Unsafe.getUnsafe().getLong(stopLevels + SNAPSHOT_LEVEL_PRICE);
+            }
+            if (sellStopLevelCount > 0) {
+                maxSellStop = Unsafe.getUnsafe().getLong(sellStopLevels + SNAPSHOT_LEVEL_PRICE);
+            }
+
+            for (long bid = maxBid, i = 0; i < bidLevelCount && i < CACHED_LEVELS; i++) {
+                bidCache.append(getPricePointEntry(bid));
+                bid = priceLadder.prevOccupied(bid - 1);
+            }
+            for (long ask = minAsk, i = 0; i < askLevelCount && i < CACHED_LEVELS; i++) {
+                askCache.append(getPricePointEntry(ask));
+                ask = priceLadder.nextOccupied(ask + 1);
+            }
+            publishTopOfBook();
+            // reading through buffer keeps it reachable, and mapped, until restore is done
+            return buffer.order(ByteOrder.nativeOrder()).getLong(SNAPSHOT_JOURNAL_RECORD_COUNT);
+        }
+    }
+
+    /**
+     * Writes price point with slot references for links, whichever layout is in use.
+     */
+    private void writeLevel(long pricePointEntry, long level) {
+        Unsafe.getUnsafe().putLong(level + SNAPSHOT_LEVEL_SIZE_OFFSET, layout.getLevelSize(pricePointEntry));
+        Unsafe.getUnsafe().putLong(level + SNAPSHOT_LEVEL_HEAD, layout.toSlotRef(layout.getOrderListHead(pricePointEntry)));
+        Unsafe.getUnsafe().putLong(level + SNAPSHOT_LEVEL_TAIL, layout.toSlotRef(layout.getOrderListTail(pricePointEntry)));
+        Unsafe.getUnsafe().putLong(level + SNAPSHOT_LEVEL_PRICE, layout.getLevelPrice(pricePointEntry));
+    }
+
+    private void restoreLevels(PriceLadder ladder, long levels, long levelsLimit) {
+        for (long level = levels; level < levelsLimit; level += SNAPSHOT_LEVEL_SIZE) {
+            long price = Unsafe.getUnsafe().getLong(level + SNAPSHOT_LEVEL_PRICE);
+            long pricePointEntry = ladder.getPricePointEntry(price);
+            layout.setLevelSize(pricePointEntry, Unsafe.getUnsafe().getLong(level + SNAPSHOT_LEVEL_SIZE_OFFSET));
+            layout.setOrderListHead(pricePointEntry, layout.fromSlotRef(Unsafe.getUnsafe().getLong(level + SNAPSHOT_LEVEL_HEAD)));
+            layout.setOrderListTail(pricePointEntry, layout.fromSlotRef(Unsafe.getUnsafe().getLong(level + SNAPSHOT_LEVEL_TAIL)));
+            layout.setLevelPrice(pricePointEntry, price);
+            ladder.setOccupied(price);
+
+            long orderBookEntry = layout.getOrderListHead(pricePointEntry);
+            while (orderBookEntry != 0) {
+                orderIndex.put(layout.getOrderID(orderBookEntry), orderBookEntry);
+                orderBookEntry = layout.getNext(orderBookEntry);
+            }
+        }
+    }
+
+    /**
+     * @param depthListener null detaches listener
+     */
+    public void setDepthListener(DepthListener depthListener) {
+        this.depthListener = depthListener;
+    }
+
+    /**
+     * Attaches block best bid and offer is published into.
+     *
+     * @param topOfBook null detaches block
+     */
+    public void setTopOfBook(TopOfBook topOfBook) {
+        this.topOfBook = topOfBook;
+        publishTopOfBook();
+    }
+
+    /**
+     * Order book replaying a journal has to use the same mode as the one that wrote it.
+     *
+     * @param selfTradePrevention one of {@link SelfTradePrevention} modes
+     */
+    public void setSelfTradePrevention(byte selfTradePrevention) {
+        this.selfTradePrevention = selfTradePrevention;
+    }
+
+    /**
+     * Sets matching algorithm of price points that aggressor does not clear, should be set before the first order.
+     */
+    public void setAllocation(Allocation allocation) {
+        this.allocation = allocation;
+    }
+
+    private void publishTopOfBook() {
+        if (topOfBook != null) {
+            topOfBook.publish(
+                    bidLevelCount > 0 ? maxBid : 0,
+                    bidLevelCount > 0 ? layout.getLevelSize(bidCache.get(0)) : 0,
+                    askLevelCount > 0 ? minAsk : 0,
+                    askLevelCount > 0 ? layout.getLevelSize(askCache.get(0)) : 0,
+                    lastTradePrice,
+                    lastTradeSize
+            );
+        }
     }
 
+    EntryLayout getLayout() {
+        return layout;
+    }
+
+    private long getPricePointEntry(long price) {
+        return priceLadder.getPricePointEntry(price);
+    }
+
+    /**
+     * Matches limit order against the book. Only side, price and size are read from the order.
+     *
+     * @return ID of the order, -1 if order is rejected.
+     */
     public long limitOrder(long order) {
+        // copied into typed record of its own, so that journal and replicas see limit order with no owner
+        Order.setSide(plainOrder, Order.getSide(order));
+        Order.setPrice(plainOrder, Order.getPrice(order));
+        Order.setSize(plainOrder, Order.getSize(order));
+        return placeOrder(plainOrder, System.currentTimeMillis());
+    }
+
+    /**
+     * Matches order of any of {@link OrderTypes} against the book. Record has to be set up with
+     * {@link Order#init(long)}.
+     *
+     * @return ID of the order, -1 if order is rejected.
+     */
+    public long placeOrder(long order) {
+        return placeOrder(order, System.currentTimeMillis());
+    }
 
-        assert orderID < maxOrders;
+    /**
+     * @param timestamp time resting order is stamped with, see {@link OrderInfo#getTimestamp(long)}
+     */
+    long placeOrder(long order, long timestamp) {
+        final long start = startTimer();
+        long id = -1;
+        // only accepted orders are journaled and replicated
+        if (isAccepted(order)) {
+            this.timestamp = timestamp;
+            if (journal != null) {
+                journal.appendLimitOrder(order, timestamp);
+            }
+            if (replicationChannel != null) {
+                replicationChannel.appendLimitOrder(order, timestamp);
+            }
+            id = matchOrder(order);
+        }
+        stopTimer(OrderBookMetrics.LIMIT_ORDER_NANOS, start);
+        return id;
+    }
 
+    /**
+     * @return false if order is unknown, does not fit compact layout or its price is too far from the book.
+     */
+    boolean isAccepted(long order) {
+        byte side = Order.getSide(order);
         long price = Order.getPrice(order);
-        if (price < minPrice || price > maxPrice) {
-            resizePricePoints(price);
+        long orderSize = Order.getSize(order);
+        if (side != OrderSides.BUY && side != OrderSides.SELL) {
+            return false;
+        }
+        // sizes of compact price points are 32 bit
+        if (!layout.fits(orderSize)) {
+            return false;
+        }
+        switch (Order.getType(order)) {
+            case OrderTypes.LIMIT:
+                return isPriceAccepted(priceLadder, price) && fitsLevel(side, price, orderSize);
+            case OrderTypes.ICEBERG:
+                long displaySize = Order.getDisplaySize(order);
+                return displaySize > 0 && layout.fits(displaySize) && isPriceAccepted(priceLadder, price) && fitsLevel(side, price, orderSize);
+            case OrderTypes.IMMEDIATE_OR_CANCEL:
+            case OrderTypes.MARKET:
+            case OrderTypes.FILL_OR_KILL:
+                return true;
+            case OrderTypes.STOP:
+                // price is kept with pending stop order, though it does not rest there
+                return isPriceAccepted(side == OrderSides.BUY ? buyStops : sellStops, Order.getStopPrice(order)) && layout.fits(price);
+            case OrderTypes.STOP_LIMIT:
+                long stopPrice = Order.getStopPrice(order);
+                return isPriceAccepted(side == OrderSides.BUY ? buyStops : sellStops, stopPrice) && isPriceAccepted(priceLadder, price)
+                        && (!isTriggered(side, stopPrice) || fitsLevel(side, price, orderSize));
+            default:
+                return false;
         }
+    }
 
+    private long matchOrder(long order) {
+        byte side = Order.getSide(order);
+        byte type = Order.getType(order);
+        long price = Order.getPrice(order);
         long orderSize = Order.getSize(order);
+        long displaySize = Long.MAX_VALUE;
 
-        if (Order.getSide(order) == OrderSides.BUY) {
-            while (orderSize > 0 && price >= minAsk) {
-                long pricePointEntry = getPricePointEntry(minAsk);
-                long ppSize = PricePointEntry.getSize(pricePointEntry);
-                if (ppSize > 0) {
+        boolean rest = true;
+        switch (type) {
+            case OrderTypes.LIMIT:
+                break;
+            case OrderTypes.IMMEDIATE_OR_CANCEL:
+                price = capPrice(side, price);
+                rest = false;
+                break;
+            case OrderTypes.MARKET:
+                price = getMarketPrice(side);
+                rest = false;
+                break;
+            case OrderTypes.FILL_OR_KILL:
+                price = capPrice(side, price);
+                if (!canFill(side, price, orderSize, Order.getOwner(order))) {
+                    reportNoTrade(orderID, side, true, price, orderSize, 0, Order.getOwner(order));
+                    flushExecutionReports();
+                    return orderID++;
+                }
+                rest = false;
+                break;
+            case OrderTypes.ICEBERG:
+                displaySize = Order.getDisplaySize(order);
+                break;
+            case OrderTypes.STOP:
+            case OrderTypes.STOP_LIMIT:
+                if (!isTriggered(side, Order.getStopPrice(order))) {
+                    addStopOrder(orderID, side, type, Order.getStopPrice(order), price, orderSize, Order.getOwner(order));
+                    return orderID++;
+                }
+                if (type == OrderTypes.STOP) {
+                    price = getMarketPrice(side);
+                    rest = false;
+                }
+                break;
+        }
 
-                    if (ppSize > orderSize) {
-                        return executeAtPricePoint(orderSize, pricePointEntry, ppSize, OrderSides.SELL, OrderSides.BUY);
-                    }
-                    // price point entry is the same as order size or smaller
-                    // we can execute trades on all orders at this price point
-                    orderSize -= ppSize;
-                    executeAllAtPricePoint(pricePointEntry, OrderSides.SELL, OrderSides.BUY);
-                    askLevelCount--;
+        if (side == OrderSides.BUY) {
+            buy(orderID, price, orderSize, displaySize, rest, Order.getOwner(order));
+        } else {
+            sell(orderID, price, orderSize, displaySize, rest, Order.getOwner(order));
+        }
+        triggerStopOrders();
+        flushExecutionReports();
+        publishTopOfBook();
+        return orderID++;
+    }
+
+    /**
+     * @see PriceLadder#MAX_DIRECTORY_PAGES
+     */
+    private boolean isPriceAccepted(PriceLadder ladder, long price) {
+        return layout.fits(price) && ladder.accepts(price);
+    }
+
+    /**
+     * Checks that compact price point can take size of new order, without allocating its page.
+     */
+    private boolean fitsLevel(byte side, long price, long size) {
+        if (!layout.isCompact() || (side == OrderSides.BUY ? price >= minAsk : price <= maxBid)) {
+            return true;
+        }
+        long pricePointEntry = priceLadder.findPricePointEntry(price);
+        return layout.fits((pricePointEntry == 0 ? 0 : layout.getLevelSize(pricePointEntry)) + size);
+    }
+
+    /**
+     * @return price beyond any occupied price, but not equal to the empty side sentinel.
+     */
+    private static long getMarketPrice(byte side) {
+        return side == OrderSides.BUY ? PriceLadder.NO_PRICE_ABOVE - 1 : PriceLadder.NO_PRICE_BELOW + 1;
+    }
+
+    /**
+     * @return order price capped at market price, so it never reaches the empty side sentinel.
+     */
+    private static long capPrice(byte side, long price) {
+        return side == OrderSides.BUY ? Math.min(price, getMarketPrice(side)) : Math.max(price, getMarketPrice(side));
+    }
+
+    /**
+     * Checks if the opposite side has enough displayed size up to given price to fill the order.
+     */
+    private boolean canFill(byte side, long price, long orderSize, int owner) {
+        if (owner != 0 && selfTradePrevention != SelfTradePrevention.NONE) {
+            return canFillPreventingSelfTrade(side, price, orderSize, owner);
+        }
+        if (side == OrderSides.BUY) {
+            for (long ask = minAsk; orderSize > 0 && ask <= price && ask != PriceLadder.NO_PRICE_ABOVE; ask = priceLadder.nextOccupied(ask + 1)) {
+                orderSize -= layout.getLevelSize(getPricePointEntry(ask));
+            }
+        } else {
+            for (long bid = maxBid; orderSize > 0 && bid >= price && bid != PriceLadder.NO_PRICE_BELOW; bid = priceLadder.prevOccupied(bid - 1)) {
+                orderSize -= layout.getLevelSize(getPricePointEntry(bid));
+            }
+        }
+        return orderSize <= 0;
+    }
+
+    /**
+     * Same check for aggressor under self-trade prevention, orders of the owner do not count.
+     */
+    private boolean canFillPreventingSelfTrade(byte side, long price, long orderSize, int owner) {
+        long level = side == OrderSides.BUY ? minAsk : maxBid;
+        long end = side == OrderSides.BUY ? PriceLadder.NO_PRICE_ABOVE : PriceLadder.NO_PRICE_BELOW;
+        while (orderSize > 0 && level != end && (side == OrderSides.BUY ? level <= price : level >= price)) {
+            long orderBookEntry = layout.getOrderListHead(getPricePointEntry(level));
+            for (; orderSize > 0 && orderBookEntry != 0; orderBookEntry = layout.getNext(orderBookEntry)) {
+                if (layout.getOwner(orderBookEntry) != owner) {
+                    orderSize -= layout.getSize(orderBookEntry);
+                } else if (selfTradePrevention != SelfTradePrevention.CANCEL_RESTING) {
+                    return false;
                 }
-                minAsk++;
             }
+            level = side == OrderSides.BUY ? priceLadder.nextOccupied(level + 1) : priceLadder.prevOccupied(level - 1);
+        }
+        return orderSize <= 0;
+    }
+
+    /**
+     * Fills {@link OrderInfo} record of resting or pending stop order in O(1). Queue position is estimated,
+     * it is never below exact position.
+     *
+     * @return false if order is not in the book.
+     * @see #getOrderInfoExact(long, long)
+     */
+    public boolean getOrderInfo(long orderID, long orderInfo) {
+        long orderBookEntry = orderIndex.get(orderID);
+        if (orderBookEntry == 0) {
+            return false;
+        }
+        fillOrderInfo(orderBookEntry, orderInfo);
+
+        long head = layout.getOrderListHead(getQueuePricePointEntry(orderBookEntry));
+        if (head == orderBookEntry) {
+            OrderInfo.setSizeAhead(orderInfo, 0);
+            OrderInfo.setOrdersAhead(orderInfo, 0);
+        } else {
+            long behindHead = layout.getNext(head);
+            OrderInfo.setSizeAhead(orderInfo, layout.getSize(head) + layout.getQueueStart(orderBookEntry) - layout.getQueueStart(behindHead));
+            OrderInfo.setOrdersAhead(orderInfo, 1 + layout.getQueueSequence(orderBookEntry) - layout.getQueueSequence(behindHead));
+        }
+        return true;
+    }
 
-            if (orderSize > 0) {
-                if (insertOrder(price, orderSize)) {
-                    bidLevelCount++;
+    /**
+     * Same as {@link #getOrderInfo(long, long)}, but queue position is counted by walking the orders ahead.
+     */
+    public boolean getOrderInfoExact(long orderID, long orderInfo) {
+        long orderBookEntry = orderIndex.get(orderID);
+        if (orderBookEntry == 0) {
+            return false;
+        }
+        fillOrderInfo(orderBookEntry, orderInfo);
+
+        long sizeAhead = 0;
+        long ordersAhead = 0;
+        for (long ahead = layout.getPrev(orderBookEntry); ahead != 0; ahead = layout.getPrev(ahead)) {
+            sizeAhead += layout.getSize(ahead);
+            ordersAhead++;
+        }
+        OrderInfo.setSizeAhead(orderInfo, sizeAhead);
+        OrderInfo.setOrdersAhead(orderInfo, ordersAhead);
+        return true;
+    }
+
+    private void fillOrderInfo(long orderBookEntry, long orderInfo) {
+        if (isStopOrder(orderBookEntry)) {
+            OrderInfo.setPrice(orderInfo, layout.getStopLimitPrice(orderBookEntry));
+            OrderInfo.setStopPrice(orderInfo, layout.getPrice(orderBookEntry));
+            OrderInfo.setReserve(orderInfo, 0);
+        } else {
+            OrderInfo.setPrice(orderInfo, layout.getPrice(orderBookEntry));
+            OrderInfo.setStopPrice(orderInfo, 0);
+            OrderInfo.setReserve(orderInfo, layout.getReserve(orderBookEntry));
+        }
+        OrderInfo.setSize(orderInfo, layout.getSize(orderBookEntry));
+        OrderInfo.setOriginalSize(orderInfo, layout.getOriginalSize(orderBookEntry));
+        OrderInfo.setTimestamp(orderInfo, layout.getTimestamp(orderBookEntry));
+        OrderInfo.setSide(orderInfo, layout.getSide(orderBookEntry));
+        OrderInfo.setType(orderInfo, layout.getType(orderBookEntry));
+        OrderInfo.setOwner(orderInfo, layout.getOwner(orderBookEntry));
+    }
+
+    private long getQueuePricePointEntry(long orderBookEntry) {
+        if (!isStopOrder(orderBookEntry)) {
+            return getPricePointEntry(layout.getPrice(orderBookEntry));
+        }
+        PriceLadder stops = layout.getSide(orderBookEntry) == OrderSides.BUY ? buyStops : sellStops;
+        return stops.getPricePointEntry(layout.getPrice(orderBookEntry));
+    }
+
+    long getNextOrderID() {
+        return orderID;
+    }
+
+    /**
+     * @return owner of resting or pending stop order, -1 if order is not in the book.
+     */
+    int getOrderOwner(long orderID) {
+        long orderBookEntry = orderIndex.get(orderID);
+        return orderBookEntry == 0 ? -1 : layout.getOwner(orderBookEntry);
+    }
+
+    /**
+     * Removes resting or pending stop order from the book.
+     *
+     * @return true if order was in the book.
+     */
+    public boolean cancelOrder(long restingOrderID) {
+        long orderBookEntry = orderIndex.get(restingOrderID);
+        if (orderBookEntry == 0) {
+            return false;
+        }
+        if (journal != null) {
+            journal.appendCancelOrder(restingOrderID);
+        }
+        if (replicationChannel != null) {
+            replicationChannel.appendCancelOrder(restingOrderID);
+        }
+        if (isStopOrder(orderBookEntry)) {
+            removeStopOrder(orderBookEntry);
+            releaseOrderBookEntry(orderBookEntry);
+            return true;
+        }
+        removeOrder(orderBookEntry);
+        releaseOrderBookEntry(orderBookEntry);
+        publishTopOfBook();
+        return true;
+    }
+
+    /**
+     * Changes price and/or size of resting order. Size reduction at the same price keeps time priority.
+     *
+     * @param newSize remaining size of amended order, order is cancelled when size is not positive
+     * @return true if order was resting in the book and amend was accepted.
+     */
+    public boolean amendOrder(long restingOrderID, long newPrice, long newSize) {
+        return amendOrder(restingOrderID, newPrice, newSize, System.currentTimeMillis());
+    }
+
+    /**
+     * @param timestamp time order that loses its time priority is stamped with
+     */
+    boolean amendOrder(long restingOrderID, long newPrice, long newSize, long timestamp) {
+        long orderBookEntry = orderIndex.get(restingOrderID);
+        if (orderBookEntry == 0 || isStopOrder(orderBookEntry)) {
+            return false;
+        }
+        if (!isPriceAccepted(priceLadder, newPrice) || !layout.fits(newSize)) {
+            return false;
+        }
+        long price = layout.getPrice(orderBookEntry);
+        long size = layout.getSize(orderBookEntry);
+        long reserve = layout.getReserve(orderBookEntry);
+        if (newSize > 0 && !fitsLevel(layout.getSide(orderBookEntry), newPrice, price == newPrice ? newSize - size : newSize)) {
+            return false;
+        }
+
+        // only accepted amends are journaled and replicated
+        this.timestamp = timestamp;
+        if (journal != null) {
+            journal.appendAmendOrder(restingOrderID, newPrice, newSize, timestamp);
+        }
+        if (replicationChannel != null) {
+            replicationChannel.appendAmendOrder(restingOrderID, newPrice, newSize, timestamp);
+        }
+
+        if (newSize < 1) {
+            removeOrder(orderBookEntry);
+            releaseOrderBookEntry(orderBookEntry);
+            publishTopOfBook();
+            return true;
+        }
+
+        if (price == newPrice && newSize <= size + reserve) {
+            // reserve of iceberg order is reduced first
+            long displayed = Math.min(size, newSize);
+            long pricePointEntry = getPricePointEntry(price);
+            layout.setLevelSize(pricePointEntry, layout.getLevelSize(pricePointEntry) - size + displayed);
+            layout.setSize(orderBookEntry, displayed);
+            layout.setReserve(orderBookEntry, newSize - displayed);
+            layout.setOriginalSize(orderBookEntry, layout.getOriginalSize(orderBookEntry) - size - reserve + newSize);
+            publishDepth(layout.getSide(orderBookEntry), price, layout.getLevelSize(pricePointEntry));
+            publishTopOfBook();
+            return true;
+        }
+
+        // order loses time priority, re-enter it under the same ID
+        byte side = layout.getSide(orderBookEntry);
+        long displaySize = layout.getDisplaySize(orderBookEntry);
+        int owner = layout.getOwner(orderBookEntry);
+        long filled = layout.getOriginalSize(orderBookEntry) - size - reserve;
+        removeOrder(orderBookEntry);
+        releaseOrderBookEntry(orderBookEntry);
+        if (side == OrderSides.BUY) {
+            buy(restingOrderID, newPrice, newSize, displaySize, true, owner);
+        } else {
+            sell(restingOrderID, newPrice, newSize, displaySize, true, owner);
+        }
+        // re-entered order counts what it was filled before amend
+        orderBookEntry = orderIndex.get(restingOrderID);
+        if (orderBookEntry != 0) {
+            layout.setOriginalSize(orderBookEntry, layout.getOriginalSize(orderBookEntry) + filled);
+        }
+        triggerStopOrders();
+        flushExecutionReports();
+        publishTopOfBook();
+        return true;
+    }
+
+    /**
+     * @param displaySize Long.MAX_VALUE for not iceberg order
+     * @param rest        when true unfilled remainder is inserted into the book, otherwise it is cancelled.
+     */
+    private void buy(long aggressorID, long price, long orderSize, long displaySize, boolean rest, int owner) {
+        final long originalSize = orderSize;
+        long levels = 0;
+        aggressorOwner = owner;
+        while (orderSize > 0 && price >= minAsk) {
+            long pricePointEntry = getPricePointEntry(minAsk);
+            long ppSize = layout.getLevelSize(pricePointEntry);
+            if (owner != 0 && selfTradePrevention != SelfTradePrevention.NONE) {
+                orderSize = executeAtPricePointPreventingSelfTrade(aggressorID, owner, orderSize, minAsk, pricePointEntry, OrderSides.SELL, OrderSides.BUY);
+                if (layout.getOrderListHead(pricePointEntry) != 0) {
+                    publishDepth(OrderSides.SELL, minAsk, layout.getLevelSize(pricePointEntry));
+                    continue;
                 }
+                clearPricePoint(OrderSides.SELL, minAsk, pricePointEntry);
+                askLevelCount--;
+                levels++;
+            } else if (ppSize > 0) {
 
-                if (maxBid < price) {
-                    maxBid = price;
+                if (ppSize > orderSize) {
+                    final long start = startTimer();
+                    allocation.execute(this, aggressorID, orderSize, minAsk, pricePointEntry, ppSize, OrderSides.SELL, OrderSides.BUY);
+                    stopTimer(OrderBookMetrics.EXECUTE_AT_PRICE_POINT_NANOS, start);
+                    recordLevelsCrossed(levels + 1);
+                    return;
                 }
+                // price point entry is the same as order size or smaller
+                // we can execute trades on all orders at this price point
+                final long start = startTimer();
+                boolean empty = executeAllAtPricePoint(aggressorID, orderSize, minAsk, pricePointEntry, OrderSides.SELL, OrderSides.BUY);
+                stopTimer(OrderBookMetrics.EXECUTE_ALL_AT_PRICE_POINT_NANOS, start);
+                orderSize -= ppSize;
+                if (!empty) {
+                    // replenished iceberg orders trade at the same price first
+                    continue;
+                }
+                askLevelCount--;
+                levels++;
+            }
+            long ask = minAsk;
+            minAsk = priceLadder.nextOccupied(ask + 1);
+            recordEmptyTicksSkipped(ask, minAsk, PriceLadder.NO_PRICE_ABOVE);
+        }
+        recordLevelsCrossed(levels);
+
+        if (orderSize > 0 && rest) {
+            if (insertOrder(aggressorID, price, orderSize, originalSize, displaySize, OrderSides.BUY, owner)) {
+                bidLevelCount++;
             }
 
-            return orderID++;
+            if (maxBid < price) {
+                maxBid = price;
+            }
+            publishDepth(OrderSides.BUY, price, layout.getLevelSize(getPricePointEntry(price)));
+        } else if (orderSize > 0) {
+            reportNoTrade(aggressorID, OrderSides.BUY, true, price, orderSize, 0, owner);
         }
+    }
 
-        if (Order.getSide(order) == OrderSides.SELL) {
-            while (price <= maxBid) {
-                long pricePointEntry = getPricePointEntry(maxBid);
-                long ppSize = PricePointEntry.getSize(pricePointEntry);
-                if (ppSize > 0) {
-                    if (ppSize > orderSize) {
-                        return executeAtPricePoint(orderSize, pricePointEntry, ppSize, OrderSides.BUY, OrderSides.SELL);
-                    }
-                    orderSize -= ppSize;
-                    executeAllAtPricePoint(pricePointEntry, OrderSides.BUY, OrderSides.SELL);
-                    bidLevelCount--;
+    private void sell(long aggressorID, long price, long orderSize, long displaySize, boolean rest, int owner) {
+        final long originalSize = orderSize;
+        long levels = 0;
+        aggressorOwner = owner;
+        while (orderSize > 0 && price <= maxBid) {
+            long pricePointEntry = getPricePointEntry(maxBid);
+            long ppSize = layout.getLevelSize(pricePointEntry);
+            if (owner != 0 && selfTradePrevention != SelfTradePrevention.NONE) {
+                orderSize = executeAtPricePointPreventingSelfTrade(aggressorID, owner, orderSize, maxBid, pricePointEntry, OrderSides.BUY, OrderSides.SELL);
+                if (layout.getOrderListHead(pricePointEntry) != 0) {
+                    publishDepth(OrderSides.BUY, maxBid, layout.getLevelSize(pricePointEntry));
+                    continue;
+                }
+                clearPricePoint(OrderSides.BUY, maxBid, pricePointEntry);
+                bidLevelCount--;
+                levels++;
+            } else if (ppSize > 0) {
+                if (ppSize > orderSize) {
+                    final long start = startTimer();
+                    allocation.execute(this, aggressorID, orderSize, maxBid, pricePointEntry, ppSize, OrderSides.BUY, OrderSides.SELL);
+                    stopTimer(OrderBookMetrics.EXECUTE_AT_PRICE_POINT_NANOS, start);
+                    recordLevelsCrossed(levels + 1);
+                    return;
                 }
-                maxBid--;
+                final long start = startTimer();
+                boolean empty = executeAllAtPricePoint(aggressorID, orderSize, maxBid, pricePointEntry, OrderSides.BUY, OrderSides.SELL);
+                stopTimer(OrderBookMetrics.EXECUTE_ALL_AT_PRICE_POINT_NANOS, start);
+                orderSize -= ppSize;
+                if (!empty) {
+                    // replenished iceberg orders trade at the same price first
+                    continue;
+                }
+                bidLevelCount--;
+                levels++;
             }
+            long bid = maxBid;
+            maxBid = priceLadder.prevOccupied(bid - 1);
+            recordEmptyTicksSkipped(maxBid, bid, PriceLadder.NO_PRICE_BELOW);
+        }
+        recordLevelsCrossed(levels);
 
-            if (orderSize > 0 && insertOrder(price, orderSize)) {
+        if (orderSize > 0 && rest) {
+            if (insertOrder(aggressorID, price, orderSize, originalSize, displaySize, OrderSides.SELL, owner)) {
                 askLevelCount++;
             }
+
             if (minAsk > price) {
                 minAsk = price;
             }
-
-            return orderID++;
+            publishDepth(OrderSides.SELL, price, layout.getLevelSize(getPricePointEntry(price)));
+        } else if (orderSize > 0) {
+            reportNoTrade(aggressorID, OrderSides.SELL, true, price, orderSize, 0, owner);
         }
-
-        return -1;
     }
 
-    private void resizePricePoints(long price) {
-        if (price < minPrice) {
-            long size = (maxPrice - price + 1) * PricePointEntry.SIZE;
-            long mem = Unsafe.malloc(size);
-            Unsafe.getUnsafe().copyMemory(pricePoints, mem + (minPrice - price) * PricePointEntry.SIZE, pricePointMemSize);
-            Unsafe.getUnsafe().setMemory(mem, (minPrice - price) * PricePointEntry.SIZE, (byte) 0);
-            Unsafe.free(pricePoints, pricePointMemSize);
-            pricePointMemSize = size;
-            pricePoints = mem;
-            minPrice = price;
-        } else {
-            // price > maxPrice
-            long size = (price - minPrice + 1) * PricePointEntry.SIZE;
-            long mem = Unsafe.malloc(size);
-            Unsafe.getUnsafe().copyMemory(pricePoints, mem, pricePointMemSize);
-            Unsafe.getUnsafe().setMemory(mem + pricePointMemSize, (price - maxPrice) * PricePointEntry.SIZE, (byte) 0);
-            Unsafe.free(pricePoints, pricePointMemSize);
-            pricePointMemSize = size;
-            pricePoints = mem;
-            maxPrice = price;
+    /**
+     * @return true if price point has no orders left.
+     */
+    private boolean executeAllAtPricePoint(long aggressorID, long orderSize, long price, long pricePointEntry, byte side1, byte side2) {
+        long orderBookEntry = layout.getOrderListHead(pricePointEntry);
+        layout.setLevelSize(pricePointEntry, 0);
+        layout.setOrderListHead(pricePointEntry, 0);
+        layout.setOrderListTail(pricePointEntry, 0);
+        while (orderBookEntry > 0) {
+            final long orderBookEntrySize = layout.getSize(orderBookEntry);
+            final long reserve = layout.getReserve(orderBookEntry);
+            orderSize -= orderBookEntrySize;
+            executeTrade(orderBookEntry, side1, reserve, aggressorID, side2, orderSize, price, orderBookEntrySize);
+            final long next = layout.getNext(orderBookEntry);
+            if (reserve > 0) {
+                replenishOrder(pricePointEntry, orderBookEntry);
+            } else {
+                releaseOrderBookEntry(orderBookEntry);
+            }
+            orderBookEntry = next;
         }
+        if (layout.getOrderListHead(pricePointEntry) != 0) {
+            publishDepth(side1, price, layout.getLevelSize(pricePointEntry));
+            return false;
+        }
+        clearPricePoint(side1, price, pricePointEntry);
+        return true;
     }
 
-    private void executeAllAtPricePoint(long pricePointEntry, byte side1, byte side2) {
-        long orderBookEntry = PricePointEntry.getOrderListHead(pricePointEntry);
-        while (orderBookEntry > 0) {
-            final long orderBookEntrySize = OrderBookEntry.getSize(orderBookEntry);
-            executeTrade(getOrderID(orderBookEntry), side1, orderID, side2, orderBookEntrySize);
-            orderBookEntry = OrderBookEntry.getNext(orderBookEntry);
+    /**
+     * Matches aggressor against price point order by order, skipping orders of aggressor's owner.
+     *
+     * @return size of aggressor left to match, 0 when it has been cancelled.
+     */
+    private long executeAtPricePointPreventingSelfTrade(long aggressorID, int owner, long orderSize, long price, long pricePointEntry, byte side1, byte side2) {
+        long orderBookEntry = layout.getOrderListHead(pricePointEntry);
+        while (orderSize > 0 && orderBookEntry != 0) {
+            final long orderBookEntrySize = layout.getSize(orderBookEntry);
+            final long reserve = layout.getReserve(orderBookEntry);
+            final long next = layout.getNext(orderBookEntry);
+            final long size;
+            if (layout.getOwner(orderBookEntry) != owner) {
+                size = Math.min(orderBookEntrySize, orderSize);
+                orderSize -= size;
+                executeTrade(orderBookEntry, side1, orderBookEntrySize - size + reserve, aggressorID, side2, orderSize, price, size);
+            } else if (selfTradePrevention == SelfTradePrevention.DECREMENT) {
+                size = Math.min(orderBookEntrySize, orderSize);
+                orderSize -= size;
+                reportNoTrade(layout.getOrderID(orderBookEntry), side1, false, price, size, orderBookEntrySize - size + reserve, owner);
+                reportNoTrade(aggressorID, side2, true, price, size, orderSize, owner);
+            } else {
+                if (selfTradePrevention != SelfTradePrevention.CANCEL_RESTING) {
+                    reportNoTrade(aggressorID, side2, true, price, orderSize, 0, owner);
+                    orderSize = 0;
+                    if (selfTradePrevention == SelfTradePrevention.CANCEL_AGGRESSOR) {
+                        break;
+                    }
+                }
+                // resting order is cancelled together with its reserve
+                reportNoTrade(layout.getOrderID(orderBookEntry), side1, false, price, orderBookEntrySize + reserve, 0, owner);
+                layout.setLevelSize(pricePointEntry, layout.getLevelSize(pricePointEntry) - orderBookEntrySize);
+                unlinkOrder(pricePointEntry, orderBookEntry);
+                releaseOrderBookEntry(orderBookEntry);
+                orderBookEntry = next;
+                continue;
+            }
+
+            layout.setLevelSize(pricePointEntry, layout.getLevelSize(pricePointEntry) - size);
+            if (size < orderBookEntrySize) {
+                layout.setSize(orderBookEntry, orderBookEntrySize - size);
+            } else {
+                unlinkOrder(pricePointEntry, orderBookEntry);
+                if (reserve > 0) {
+                    replenishOrder(pricePointEntry, orderBookEntry);
+                } else {
+                    releaseOrderBookEntry(orderBookEntry);
+                }
+            }
+            orderBookEntry = next;
         }
-        PricePointEntry.setSize(pricePointEntry, 0);
-        PricePointEntry.setOrderListHead(pricePointEntry, 0);
+        return orderSize;
     }
 
-    private long executeAtPricePoint(long orderSize, long pricePointEntry, long ppSize, byte side1, byte side2) {
+    private void clearPricePoint(byte side, long price, long pricePointEntry) {
+        priceLadder.clearOccupied(price);
+        removeCachedLevel(side, pricePointEntry);
+        publishDepth(side, price, 0);
+    }
+
+    void executeAtPricePoint(long aggressorID, long orderSize, long price, long pricePointEntry, long ppSize, byte side1, byte side2) {
         // no need to store this order
         // it can be fully crossed with existing SELL orders
         //
-        // we will set new order head to the last partially matched order
-        PricePointEntry.setSize(pricePointEntry, ppSize - orderSize);
-        long orderBookEntry = PricePointEntry.getOrderListHead(pricePointEntry);
+        // filled orders are unlinked from the head one by one, price point size is greater
+        // than order size, so there is always an order left
+        layout.setLevelSize(pricePointEntry, ppSize - orderSize);
+        long orderBookEntry = layout.getOrderListHead(pricePointEntry);
         while (orderSize > 0) {
-            long orderBookEntrySize = OrderBookEntry.getSize(orderBookEntry);
+            long orderBookEntrySize = layout.getSize(orderBookEntry);
+            long reserve = layout.getReserve(orderBookEntry);
             if (orderBookEntrySize > orderSize) {
-                executeTrade(getOrderID(orderBookEntry), side1, orderID, side2, orderSize);
-                OrderBookEntry.setSize(orderBookEntry, orderBookEntrySize - orderSize);
-                PricePointEntry.setOrderListHead(pricePointEntry, orderBookEntry);
+                executeTrade(orderBookEntry, side1, orderBookEntrySize - orderSize + reserve, aggressorID, side2, 0, price, orderSize);
+                layout.setSize(orderBookEntry, orderBookEntrySize - orderSize);
                 break;
             } else {
-                executeTrade(getOrderID(orderBookEntry), side1, orderID, side2, orderBookEntrySize);
                 orderSize -= orderBookEntrySize;
-                orderBookEntry = OrderBookEntry.getNext(orderBookEntry);
+                executeTrade(orderBookEntry, side1, reserve, aggressorID, side2, orderSize, price, orderBookEntrySize);
+                final long next = layout.getNext(orderBookEntry);
+                unlinkOrder(pricePointEntry, orderBookEntry);
+                if (reserve > 0) {
+                    replenishOrder(pricePointEntry, orderBookEntry);
+                } else {
+                    releaseOrderBookEntry(orderBookEntry);
+                }
+                orderBookEntry = next;
             }
         }
-        return orderID++;
+        publishDepth(side1, price, layout.getLevelSize(pricePointEntry));
+    }
+
+    /**
+     * Trades displayed size of resting order with aggressor, depth is not published.
+     */
+    void fillOrder(long aggressorID, long aggressorLeavesSize, long price, long pricePointEntry, long orderBookEntry, long size, byte side1, byte side2) {
+        final long orderBookEntrySize = layout.getSize(orderBookEntry);
+        final long reserve = layout.getReserve(orderBookEntry);
+        executeTrade(orderBookEntry, side1, orderBookEntrySize - size + reserve, aggressorID, side2, aggressorLeavesSize, price, size);
+        layout.setLevelSize(pricePointEntry, layout.getLevelSize(pricePointEntry) - size);
+        if (size < orderBookEntrySize) {
+            layout.setSize(orderBookEntry, orderBookEntrySize - size);
+            return;
+        }
+        unlinkOrder(pricePointEntry, orderBookEntry);
+        if (reserve > 0) {
+            replenishOrder(pricePointEntry, orderBookEntry);
+        } else {
+            releaseOrderBookEntry(orderBookEntry);
+        }
     }
 
-    private void executeTrade(long sellOrderID, byte side1, long buyOrderID, byte side2, long orderSize) {
-        ExecutionReport.setOrderID(executionReport, sellOrderID);
+    /**
+     * Displays next slice of filled iceberg order from its reserve, at the tail of the price point.
+     */
+    private void replenishOrder(long pricePointEntry, long orderBookEntry) {
+        long reserve = layout.getReserve(orderBookEntry);
+        long displayed = Math.min(reserve, layout.getDisplaySize(orderBookEntry));
+        layout.setSize(orderBookEntry, displayed);
+        layout.setReserve(orderBookEntry, reserve - displayed);
+        layout.setLevelSize(pricePointEntry, layout.getLevelSize(pricePointEntry) + displayed);
+        appendOrder(pricePointEntry, orderBookEntry);
+    }
+
+    private void executeTrade(
+            long orderBookEntry,
+            byte restingSide,
+            long restingLeavesSize,
+            long aggressorID,
+            byte aggressorSide,
+            long aggressorLeavesSize,
+            long price,
+            long orderSize
+    ) {
+        final long id = tradeID++;
+        final long restingOrderID = layout.getOrderID(orderBookEntry);
+        lastTradePrice = price;
+        lastTradeSize = orderSize;
+        if (price > tradeHigh) {
+            tradeHigh = price;
+        }
+        if (price < tradeLow) {
+            tradeLow = price;
+        }
+        if (isRecording()) {
+            metrics.increment(OrderBookMetrics.TRADE_COUNT);
+        }
+
+        if (tradeReports) {
+            TradeReport.setTradeID(executionReport, id);
+            TradeReport.setPrice(executionReport, price);
+            TradeReport.setSize(executionReport, orderSize);
+            TradeReport.setAggressorSide(executionReport, aggressorSide);
+            if (aggressorSide == OrderSides.BUY) {
+                TradeReport.setBuyOrderID(executionReport, aggressorID);
+                TradeReport.setBuyLeavesSize(executionReport, aggressorLeavesSize);
+                TradeReport.setSellOrderID(executionReport, restingOrderID);
+                TradeReport.setSellLeavesSize(executionReport, restingLeavesSize);
+            } else {
+                TradeReport.setBuyOrderID(executionReport, restingOrderID);
+                TradeReport.setBuyLeavesSize(executionReport, restingLeavesSize);
+                TradeReport.setSellOrderID(executionReport, aggressorID);
+                TradeReport.setSellLeavesSize(executionReport, aggressorLeavesSize);
+            }
+            execute();
+            return;
+        }
+
+        ExecutionReport.setOrderID(executionReport, restingOrderID);
+        ExecutionReport.setOrderSize(executionReport, orderSize);
+        ExecutionReport.setOrderSide(executionReport, restingSide);
+        ExecutionReport.setAggressor(executionReport, false);
+        ExecutionReport.setPrice(executionReport, price);
+        ExecutionReport.setTradeID(executionReport, id);
+        ExecutionReport.setLeavesSize(executionReport, restingLeavesSize);
+        ExecutionReport.setOwner(executionReport, layout.getOwner(orderBookEntry));
+        execute();
+
+        ExecutionReport.setOrderID(executionReport, aggressorID);
         ExecutionReport.setOrderSize(executionReport, orderSize);
-        ExecutionReport.setOrderSide(executionReport, side1);
+        ExecutionReport.setOrderSide(executionReport, aggressorSide);
+        ExecutionReport.setAggressor(executionReport, true);
+        ExecutionReport.setPrice(executionReport, price);
+        ExecutionReport.setTradeID(executionReport, id);
+        ExecutionReport.setLeavesSize(executionReport, aggressorLeavesSize);
+        ExecutionReport.setOwner(executionReport, aggressorOwner);
         execute();
+    }
 
-        ExecutionReport.setOrderID(executionReport, buyOrderID);
-        ExecutionReport.setOrderSide(executionReport, side2);
-        // order size will propagate from previous set
+    /**
+     * Reports size taken off order without a trade, by self-trade prevention or cancelled remainder.
+     */
+    private void reportNoTrade(long orderID, byte side, boolean aggressor, long price, long size, long leavesSize, int owner) {
+        if (tradeReports) {
+            return;
+        }
+        ExecutionReport.setOrderID(executionReport, orderID);
+        ExecutionReport.setOrderSize(executionReport, size);
+        ExecutionReport.setOrderSide(executionReport, side);
+        ExecutionReport.setAggressor(executionReport, aggressor);
+        ExecutionReport.setPrice(executionReport, price);
+        ExecutionReport.setTradeID(executionReport, ExecutionReport.NO_TRADE);
+        ExecutionReport.setLeavesSize(executionReport, leavesSize);
+        ExecutionReport.setOwner(executionReport, owner);
         execute();
     }
 
     private void execute() {
-        onExecution.onExecution(executionReport);
+        if (onExecutionBatch == null) {
+            onExecution.onExecution(executionReport);
+        } else if ((executionReport += ExecutionReport.SIZE) == executionReportsLimit) {
+            flushExecutionReports();
+        }
+    }
+
+    void publishDepth(byte side, long price, long size) {
+        if (depthListener != null) {
+            // levels between price and top of book are all on the same side
+            long level = side == OrderSides.BUY ? priceLadder.countOccupied(price + 1, maxBid) : priceLadder.countOccupied(minAsk, price - 1);
+            depthListener.onDepthUpdate(price, side, size, level);
+        }
+    }
+
+    private boolean isRecording() {
+        return OrderBookMetrics.ENABLED && metrics != null;
+    }
+
+    private long startTimer() {
+        return isRecording() ? System.nanoTime() : 0;
+    }
+
+    private void stopTimer(int histogram, long start) {
+        if (isRecording()) {
+            metrics.record(histogram, System.nanoTime() - start);
+        }
+    }
+
+    private void recordLevelsCrossed(long levels) {
+        if (isRecording() && levels > 0) {
+            metrics.record(OrderBookMetrics.LEVELS_CROSSED, levels);
+        }
     }
 
-    private boolean insertOrder(long price, long orderSize) {
-        long orderBookEntry = orderBook + (orderID * OrderBookEntry.SIZE);
+    private void recordEmptyTicksSkipped(long lowerPrice, long higherPrice, long sentinel) {
+        if (isRecording() && lowerPrice != sentinel && higherPrice != sentinel) {
+            metrics.add(OrderBookMetrics.EMPTY_TICKS_SKIPPED, higherPrice - lowerPrice - 1);
+        }
+    }
+
+    private void flushExecutionReports() {
+        if (executionReport > executionReports) {
+            onExecutionBatch.onExecutions(executionReports, (executionReport - executionReports) / ExecutionReport.SIZE);
+            executionReport = executionReports;
+        }
+    }
+
+    private boolean insertOrder(long id, long price, long orderSize, long originalSize, long displaySize, byte side, int owner) {
+        long orderBookEntry = allocateOrderBookEntry();
         long pricePointEntry = getPricePointEntry(price);
+        long displayed = Math.min(orderSize, displaySize);
 
-        OrderBookEntry.setSize(orderBookEntry, orderSize);
-        PricePointEntry.setSize(pricePointEntry, PricePointEntry.getSize(pricePointEntry) + orderSize);
-        if (PricePointEntry.getOrderListHead(pricePointEntry) == 0) {
-            PricePointEntry.setOrderListHead(pricePointEntry, orderBookEntry);
-            PricePointEntry.setOrderListTail(pricePointEntry, orderBookEntry);
+        layout.setSize(orderBookEntry, displayed);
+        layout.setReserve(orderBookEntry, orderSize - displayed);
+        layout.setDisplaySize(orderBookEntry, displaySize);
+        layout.setPrice(orderBookEntry, price);
+        layout.setOrderID(orderBookEntry, id);
+        layout.setSide(orderBookEntry, side);
+        layout.setType(orderBookEntry, displaySize == Long.MAX_VALUE ? OrderTypes.LIMIT : OrderTypes.ICEBERG);
+        layout.setOwner(orderBookEntry, owner);
+        layout.setOriginalSize(orderBookEntry, originalSize);
+        layout.setTimestamp(orderBookEntry, timestamp);
+        orderIndex.put(id, orderBookEntry);
+        layout.setLevelSize(pricePointEntry, layout.getLevelSize(pricePointEntry) + displayed);
+        if (appendOrder(pricePointEntry, orderBookEntry)) {
+            layout.setLevelPrice(pricePointEntry, price);
+            priceLadder.setOccupied(price);
+            (side == OrderSides.BUY ? bidCache : askCache).add(pricePointEntry);
             return true;
         }
-        OrderBookEntry.setNext(PricePointEntry.getOrderListTail(pricePointEntry), orderBookEntry);
         return false;
     }
 
+    private boolean isTriggered(byte side, long stopPrice) {
+        return tradeID > 0 && (side == OrderSides.BUY ? lastTradePrice >= stopPrice : lastTradePrice <= stopPrice);
+    }
+
+    private boolean isStopOrder(long orderBookEntry) {
+        byte type = layout.getType(orderBookEntry);
+        return type == OrderTypes.STOP || type == OrderTypes.STOP_LIMIT;
+    }
+
+    /**
+     * Queues stop order at its stop price, in price ladder of stops of its side.
+     */
+    private void addStopOrder(long id, byte side, byte type, long stopPrice, long price, long orderSize, int owner) {
+        long orderBookEntry = allocateOrderBookEntry();
+        layout.setSize(orderBookEntry, orderSize);
+        layout.setPrice(orderBookEntry, stopPrice);
+        layout.setOrderID(orderBookEntry, id);
+        layout.setSide(orderBookEntry, side);
+        layout.setType(orderBookEntry, type);
+        layout.setStopLimitPrice(orderBookEntry, price);
+        layout.setDisplaySize(orderBookEntry, Long.MAX_VALUE);
+        layout.setOwner(orderBookEntry, owner);
+        layout.setOriginalSize(orderBookEntry, orderSize);
+        layout.setTimestamp(orderBookEntry, timestamp);
+        orderIndex.put(id, orderBookEntry);
+
+        PriceLadder stops = side == OrderSides.BUY ? buyStops : sellStops;
+        long pricePointEntry = stops.getPricePointEntry(stopPrice);
+        if (appendOrder(pricePointEntry, orderBookEntry)) {
+            layout.setLevelPrice(pricePointEntry, stopPrice);
+            stops.setOccupied(stopPrice);
+            if (side == OrderSides.BUY) {
+                buyStopLevelCount++;
+                if (minBuyStop > stopPrice) {
+                    minBuyStop = stopPrice;
+                }
+            } else {
+                sellStopLevelCount++;
+                if (maxSellStop < stopPrice) {
+                    maxSellStop = stopPrice;
+                }
+            }
+        }
+    }
+
+    private void removeStopOrder(long orderBookEntry) {
+        long stopPrice = layout.getPrice(orderBookEntry);
+        byte side = layout.getSide(orderBookEntry);
+        PriceLadder stops = side == OrderSides.BUY ? buyStops : sellStops;
+        long pricePointEntry = stops.getPricePointEntry(stopPrice);
+        unlinkOrder(pricePointEntry, orderBookEntry);
+        if (layout.getOrderListHead(pricePointEntry) == 0) {
+            stops.clearOccupied(stopPrice);
+            if (side == OrderSides.BUY) {
+                buyStopLevelCount--;
+                if (stopPrice == minBuyStop) {
+                    minBuyStop = buyStops.nextOccupied(stopPrice + 1);
+                }
+            } else {
+                sellStopLevelCount--;
+                if (stopPrice == maxSellStop) {
+                    maxSellStop = sellStops.prevOccupied(stopPrice - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases stop orders reached by trades since the last call, in trigger order.
+     */
+    private void triggerStopOrders() {
+        while (true) {
+            long orderBookEntry;
+            if (minBuyStop <= tradeHigh) {
+                orderBookEntry = layout.getOrderListHead(buyStops.getPricePointEntry(minBuyStop));
+            } else if (maxSellStop >= tradeLow) {
+                orderBookEntry = layout.getOrderListHead(sellStops.getPricePointEntry(maxSellStop));
+            } else {
+                break;
+            }
+
+            final long id = layout.getOrderID(orderBookEntry);
+            final byte side = layout.getSide(orderBookEntry);
+            final long orderSize = layout.getSize(orderBookEntry);
+            final boolean limit = layout.getType(orderBookEntry) == OrderTypes.STOP_LIMIT;
+            final long price = limit ? layout.getStopLimitPrice(orderBookEntry) : getMarketPrice(side);
+            final int owner = layout.getOwner(orderBookEntry);
+            // compact price point may have filled up since stop order was accepted, then remainder is cancelled
+            final boolean rest = limit && fitsLevel(side, price, orderSize);
+            removeStopOrder(orderBookEntry);
+            releaseOrderBookEntry(orderBookEntry);
+            if (side == OrderSides.BUY) {
+                buy(id, price, orderSize, Long.MAX_VALUE, rest, owner);
+            } else {
+                sell(id, price, orderSize, Long.MAX_VALUE, rest, owner);
+            }
+        }
+        tradeHigh = PriceLadder.NO_PRICE_BELOW;
+        tradeLow = PriceLadder.NO_PRICE_ABOVE;
+    }
+
+    /**
+     * Links order book entry to the tail of price point queue and records its queue position.
+     *
+     * @return true if price point did not have any orders before this one.
+     */
+    private boolean appendOrder(long pricePointEntry, long orderBookEntry) {
+        layout.setNext(orderBookEntry, 0);
+        long tail = layout.getOrderListTail(pricePointEntry);
+        layout.setOrderListTail(pricePointEntry, orderBookEntry);
+        if (layout.getOrderListHead(pricePointEntry) == 0) {
+            layout.setQueuePosition(orderBookEntry, 0, 0);
+            layout.setPrev(orderBookEntry, 0);
+            layout.setOrderListHead(pricePointEntry, orderBookEntry);
+            return true;
+        }
+        layout.setQueuePosition(orderBookEntry, layout.getQueueStart(tail) + layout.getSize(tail), layout.getQueueSequence(tail) + 1);
+        layout.setPrev(orderBookEntry, tail);
+        layout.setNext(tail, orderBookEntry);
+        return false;
+    }
+
+    /**
+     * Order book entry is not released.
+     */
+    private void removeOrder(long orderBookEntry) {
+        long price = layout.getPrice(orderBookEntry);
+        byte side = layout.getSide(orderBookEntry);
+        long pricePointEntry = getPricePointEntry(price);
+        long size = layout.getLevelSize(pricePointEntry) - layout.getSize(orderBookEntry);
+        layout.setLevelSize(pricePointEntry, size);
+        unlinkOrder(pricePointEntry, orderBookEntry);
+        if (layout.getOrderListHead(pricePointEntry) == 0) {
+            priceLadder.clearOccupied(price);
+            if (side == OrderSides.BUY) {
+                bidLevelCount--;
+                if (price == maxBid) {
+                    maxBid = priceLadder.prevOccupied(price - 1);
+                }
+            } else {
+                askLevelCount--;
+                if (price == minAsk) {
+                    minAsk = priceLadder.nextOccupied(price + 1);
+                }
+            }
+            removeCachedLevel(side, pricePointEntry);
+        }
+        publishDepth(side, price, size);
+    }
+
+    private void removeCachedLevel(byte side, long pricePointEntry) {
+        DepthCache cache = side == OrderSides.BUY ? bidCache : askCache;
+        if (cache.remove(pricePointEntry) && cache.getCount() == cache.getCapacity() - 1) {
+            long last = layout.getLevelPrice(cache.get(cache.getCount() - 1));
+            if (side == OrderSides.BUY) {
+                long bid = priceLadder.prevOccupied(last - 1);
+                if (bid != PriceLadder.NO_PRICE_BELOW) {
+                    cache.append(getPricePointEntry(bid));
+                }
+            } else {
+                long ask = priceLadder.nextOccupied(last + 1);
+                if (ask != PriceLadder.NO_PRICE_ABOVE) {
+                    cache.append(getPricePointEntry(ask));
+                }
+            }
+        }
+    }
+
+    private void unlinkOrder(long pricePointEntry, long orderBookEntry) {
+        long prev = layout.getPrev(orderBookEntry);
+        long next = layout.getNext(orderBookEntry);
+        if (prev == 0) {
+            layout.setOrderListHead(pricePointEntry, next);
+        } else {
+            layout.setNext(prev, next);
+        }
+        if (next == 0) {
+            layout.setOrderListTail(pricePointEntry, prev);
+        } else {
+            layout.setPrev(next, prev);
+        }
+    }
+
+    private long allocateOrderBookEntry() {
+        long orderBookEntry = freeList;
+        if (orderBookEntry != 0) {
+            freeList = layout.getNext(orderBookEntry);
+            return orderBookEntry;
+        }
+        long slot = orderBookUsed++;
+        if (slot >>> EntryLayout.CHUNK_SHIFT == layout.getChunkCount()) {
+            addChunk();
+        }
+        // entry remembers its slot, which locates its details
+        orderBookEntry = layout.getSlotAddress(slot);
+        layout.initSlot(orderBookEntry, slot);
+        return orderBookEntry;
+    }
+
+    private void addChunk() {
+        long chunk = spareChunk.getAndSet(NO_SPARE_CHUNK);
+        if (chunk == NO_SPARE_CHUNK) {
+            chunk = allocateChunk(layout.getChunkSize());
+        }
+        layout.addChunk(chunk);
+        if (pretouchExecutor != null) {
+            pretouchExecutor.execute(pretouch);
+        }
+    }
+
+    private static long allocateChunk(long chunkSize) {
+        long chunk = Unsafe.malloc(chunkSize);
+        // writes every page, so the first orders in the chunk do not page fault
+        Unsafe.getUnsafe().setMemory(chunk, chunkSize, (byte) 0);
+        return chunk;
+    }
+
     /**
-     * Finds entry address for the required order book ASK level. Level attributes
-     * can be requested using the return value of this method. Retrieving first attribute
-     * incurs search penalty but subsequent attributes will be read with O(1) complexity.
+     * Runs on pretouch executor.
+     */
+    private void pretouchChunk() {
+        long chunk = allocateChunk(layout.getChunkSize());
+        if (!spareChunk.compareAndSet(NO_SPARE_CHUNK, chunk)) {
+            Unsafe.free(chunk, layout.getChunkSize());
+        }
+    }
+
+    /**
+     * Free list is LIFO, so the most recently touched slot is reused first.
+     */
+    private void releaseOrderBookEntry(long orderBookEntry) {
+        orderIndex.remove(layout.getOrderID(orderBookEntry));
+        layout.setNext(orderBookEntry, freeList);
+        freeList = orderBookEntry;
+    }
+
+    /**
+     * Finds entry address for the required order book BID level. Level attributes
+     * can be requested using the return value of this method. Top {@link #CACHED_LEVELS} levels
+     * are read from depth cache.
      *
      * @param level 0-based level. This value has to be below bidLevelCount.
      * @return address of order book entry at given level.
      */
     public long getEntryAtBidLevel(long level) {
         if (level < bidLevelCount) {
-            long levelsRemaining = level;
-            long bid = maxBid;
-
-            do {
-                long pricePointEntry = getPricePointEntry(bid);
-                long ppSize = PricePointEntry.getSize(pricePointEntry);
-                if (ppSize > 0) {
-                    if (levelsRemaining < 1) {
-                        return pricePointEntry;
-                    }
-                    levelsRemaining--;
-                }
-                bid--;
-            } while (true);
+            int cached = bidCache.getCount();
+            if (level < cached) {
+                return bidCache.get((int) level);
+            }
+            long bid = layout.getLevelPrice(bidCache.get(cached - 1));
+            for (level -= cached - 1; level > 0; level--) {
+                bid = priceLadder.prevOccupied(bid - 1);
+            }
+            return getPricePointEntry(bid);
         }
         return -1;
     }
 
     public long getEntryAtAskLevel(long level) {
         if (level < askLevelCount) {
-            long levelsRemaining = level;
-            long ask = minAsk;
-            do {
-                long pricePointEntry = getPricePointEntry(ask);
-                long ppSize = PricePointEntry.getSize(pricePointEntry);
-                if (ppSize > 0) {
-                    if (levelsRemaining < 1) {
-                        return pricePointEntry;
-                    }
-                    levelsRemaining--;
-                }
-                ask++;
-            } while (true);
+            int cached = askCache.getCount();
+            if (level < cached) {
+                return askCache.get((int) level);
+            }
+            long ask = layout.getLevelPrice(askCache.get(cached - 1));
+            for (level -= cached - 1; level > 0; level--) {
+                ask = priceLadder.nextOccupied(ask + 1);
+            }
+            return getPricePointEntry(ask);
         }
         return -1;
     }
 
     public long getPriceAtEntry(long pricePointEntry) {
         assert pricePointEntry != -1;
-        return (pricePointEntry - pricePoints) / PricePointEntry.SIZE + minPrice;
+        return layout.getLevelPrice(pricePointEntry);
+    }
+
+    public long getSizeAtEntry(long pricePointEntry) {
+        assert pricePointEntry != -1;
+        return layout.getLevelSize(pricePointEntry);
     }
 
     public void getOrderBook(OrderBookListener listener) {
@@ -270,46 +1546,26 @@ public class OrderBook implements Closeable {
         long ask = minAsk;
         while (level < levelsRemaining) {
 
-            assert ask >= minPrice;
-            assert bid <= maxPrice;
-
-            long bidEntry;
             long bidSize;
             long bidPrice;
-            long askEntry;
             long askSize;
             long askPrice;
 
             if (level < bidLevelCount) {
-                do {
-                    bidEntry = getPricePointEntry(bid);
-                    bidSize = PricePointEntry.getSize(bidEntry);
-
-                    if (bidSize == 0 && level < bidLevelCount) {
-                        bid--;
-                    } else {
-                        break;
-                    }
-                } while (true);
-                bidPrice = getPriceAtEntry(bidEntry);
+                bid = priceLadder.prevOccupied(bid);
+                assert bid != PriceLadder.NO_PRICE_BELOW;
+                bidSize = layout.getLevelSize(getPricePointEntry(bid));
+                bidPrice = bid;
             } else {
                 bidSize = 0;
                 bidPrice = 0;
             }
 
-
             if (level < askLevelCount) {
-                do {
-                    askEntry = getPricePointEntry(ask);
-                    askSize = PricePointEntry.getSize(askEntry);
-
-                    if (askSize == 0 && level < askLevelCount) {
-                        ask++;
-                    } else {
-                        break;
-                    }
-                } while (true);
-                askPrice = getPriceAtEntry(askEntry);
+                ask = priceLadder.nextOccupied(ask);
+                assert ask != PriceLadder.NO_PRICE_ABOVE;
+                askSize = layout.getLevelSize(getPricePointEntry(ask));
+                askPrice = ask;
             } else {
                 askSize = 0;
                 askPrice = 0;
@@ -0,0 +1,11 @@
+package com.appsicle.orderbook;
+
+/**
+ * Creates order books for {@link MatchingEngine}. Every book is used by the matching thread of
+ * its shard only, so its execution report handler is only ever called from that thread. Handlers
+ * of books in the same shard can share egress structures without synchronisation.
+ */
+@FunctionalInterface
+public interface OrderBookFactory {
+    OrderBook newInstance(int symbol, int shard);
+}
@@ -0,0 +1,186 @@
+package com.appsicle.orderbook;
+
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Latency histograms and counters of a single {@link OrderBook}, kept in preallocated off-heap memory.
+ * Recording is enabled with {@code -Dorderbook.metrics=true}; otherwise {@link #ENABLED} is a constant
+ * false and JIT removes instrumentation from the order book hot path altogether.
+ * <p>
+ * Histograms are log-linear: values below 64 have their own bucket and every power of two above is
+ * split into 32 buckets, so any recorded value is reported within about 3% of its true value.
+ * <p>
+ * Matching thread is the only writer. Monitoring thread reads values without locks; each value is read
+ * atomically, but values recorded during {@link #snapshot(OrderBookMetrics)} may or may not be included.
+ * {@link #reset()} does not clear memory under the writer, it remembers current values as a baseline
+ * that subsequent reads subtract, so no recorded value is lost.
+ */
+public final class OrderBookMetrics implements Closeable {
+    public static final boolean ENABLED = Boolean.getBoolean("orderbook.metrics");
+
+    // histograms
+    public static final int LIMIT_ORDER_NANOS = 0;
+    public static final int EXECUTE_AT_PRICE_POINT_NANOS = 1;
+    public static final int EXECUTE_ALL_AT_PRICE_POINT_NANOS = 2;
+    /**
+     * Price levels traded by an order that crossed the book.
+     */
+    public static final int LEVELS_CROSSED = 3;
+    static final int HISTOGRAM_COUNT = 4;
+
+    // counters
+    public static final int TRADE_COUNT = 0;
+    /**
+     * Empty price points skipped by occupancy bitmap search while orders crossed the book.
+     */
+    public static final int EMPTY_TICKS_SKIPPED = 1;
+    /**
+     * Number of times price page directory was grown.
+     */
+    public static final int RESIZE_COUNT = 2;
+    static final int COUNTER_COUNT = 3;
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF_BITS = SUB_BUCKET_BITS - 1;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // covers all positive long values
+    static final int BUCKET_COUNT = (65 - SUB_BUCKET_BITS) << SUB_BUCKET_HALF_BITS;
+    private static final long HISTOGRAMS_OFFSET = COUNTER_COUNT * 8;
+    private static final long MEM_SIZE = HISTOGRAMS_OFFSET + HISTOGRAM_COUNT * BUCKET_COUNT * 8L;
+
+    private final long mem;
+    private final long baseline;
+
+    public OrderBookMetrics() {
+        this.mem = Unsafe.malloc(MEM_SIZE);
+        this.baseline = Unsafe.malloc(MEM_SIZE);
+        Unsafe.getUnsafe().setMemory(mem, MEM_SIZE, (byte) 0);
+        Unsafe.getUnsafe().setMemory(baseline, MEM_SIZE, (byte) 0);
+    }
+
+    @Override
+    public void close() {
+        Unsafe.free(mem, MEM_SIZE);
+        Unsafe.free(baseline, MEM_SIZE);
+    }
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_HALF_BITS;
+        return (shift << SUB_BUCKET_HALF_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return lowest value that falls into the bucket.
+     */
+    static long getBucketValue(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_HALF_BITS) - 1;
+        return (long) (bucket - (shift << SUB_BUCKET_HALF_BITS)) << shift;
+    }
+
+    /**
+     * @return highest value that falls into the bucket, lowest value of the last bucket above it would overflow.
+     */
+    static long getBucketHighestValue(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : getBucketValue(bucket + 1) - 1;
+    }
+
+    void increment(int counter) {
+        incrementAt(mem + counter * 8);
+    }
+
+    void add(int counter, long delta) {
+        long address = mem + counter * 8;
+        Unsafe.getUnsafe().putOrderedLong(null, address, Unsafe.getUnsafe().getLong(address) + delta);
+    }
+
+    void record(int histogram, long value) {
+        incrementAt(getBucketAddress(mem, histogram, getBucket(value)));
+    }
+
+    public long getCounter(int counter) {
+        return read(counter * 8);
+    }
+
+    /**
+     * @return number of values recorded by the histogram.
+     */
+    public long getCount(int histogram) {
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            count += readBucket(histogram, bucket);
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return highest value equivalent to the value at given percentile, 0 when histogram is empty.
+     */
+    public long getValueAtPercentile(int histogram, double percentile) {
+        long count = getCount(histogram);
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            total += readBucket(histogram, bucket);
+            if (total >= rank) {
+                return getBucketHighestValue(bucket);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return highest value equivalent to the largest recorded value, 0 when histogram is empty.
+     */
+    public long getMaxValue(int histogram) {
+        for (int bucket = BUCKET_COUNT - 1; bucket > -1; bucket--) {
+            if (readBucket(histogram, bucket) > 0) {
+                return getBucketHighestValue(bucket);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Copies values recorded since last reset to target, which must not be recording.
+     */
+    public void snapshot(OrderBookMetrics target) {
+        for (long offset = 0; offset < MEM_SIZE; offset += 8) {
+            Unsafe.getUnsafe().putLong(target.mem + offset, read(offset));
+        }
+        Unsafe.getUnsafe().setMemory(target.baseline, MEM_SIZE, (byte) 0);
+    }
+
+    /**
+     * Starts counting from zero. Must only be called by one monitoring thread.
+     */
+    public void reset() {
+        for (long offset = 0; offset < MEM_SIZE; offset += 8) {
+            Unsafe.getUnsafe().putLong(baseline + offset, Unsafe.getUnsafe().getLongVolatile(null, mem + offset));
+        }
+    }
+
+    private static long getBucketAddress(long mem, int histogram, int bucket) {
+        return mem + HISTOGRAMS_OFFSET + ((long) histogram * BUCKET_COUNT + bucket) * 8;
+    }
+
+    private static void incrementAt(long address) {
+        Unsafe.getUnsafe().putOrderedLong(null, address, Unsafe.getUnsafe().getLong(address) + 1);
+    }
+
+    private long readBucket(int histogram, int bucket) {
+        return read(getBucketAddress(0, histogram, bucket));
+    }
+
+    private long read(long offset) {
+        return Unsafe.getUnsafe().getLongVolatile(null, mem + offset) - Unsafe.getUnsafe().getLong(baseline + offset);
+    }
+}
@@ -0,0 +1,297 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.ExecutionReport;
+import com.appsicle.orderbook.model.GatewayMessage;
+import com.appsicle.orderbook.model.Order;
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Order entry gateway speaking fixed length binary {@link GatewayMessage} protocol over non-blocking TCP sockets.
+ * {@link #poll()} is called by the thread that owns the order book, which has to be created with this gateway as
+ * its {@link ExecutionReportHandler}. Every connection gets its own owner ID, reports are routed by it.
+ */
+public final class OrderGateway implements ExecutionReportHandler, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final SocketChannel[] channels;
+    private final ByteBuffer[] inBuffers;
+    private final ByteBuffer[] outBuffers;
+    private final long[] inAddresses;
+    private final long[] outAddresses;
+    private final int[] owners;
+    private final int[] connectionCounts;
+    private OrderBook orderBook;
+    private long acceptFailureCount;
+
+    /**
+     * @param address     address to listen on, port 0 picks a free one
+     * @param maxSessions maximum number of connected sessions, further connections are refused
+     */
+    public OrderGateway(InetSocketAddress address, int maxSessions) throws IOException {
+        assert maxSessions > 0;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.bind(address);
+        this.channels = new SocketChannel[maxSessions];
+        this.inBuffers = new ByteBuffer[maxSessions];
+        this.outBuffers = new ByteBuffer[maxSessions];
+        this.inAddresses = new long[maxSessions];
+        this.outAddresses = new long[maxSessions];
+        this.owners = new int[maxSessions];
+        this.connectionCounts = new int[maxSessions];
+        for (int i = 0; i < maxSessions; i++) {
+            inBuffers[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            outBuffers[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            inAddresses[i] = MappedMemory.getAddress(inBuffers[i]);
+            outAddresses[i] = MappedMemory.getAddress(outBuffers[i]);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < channels.length; i++) {
+            closeSession(i);
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void setOrderBook(OrderBook orderBook) {
+        this.orderBook = orderBook;
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return number of connections that could not be accepted or set up since the gateway was created.
+     */
+    public long getAcceptFailureCount() {
+        return acceptFailureCount;
+    }
+
+    /**
+     * Accepts new sessions, applies every complete request received since last call and sends responses.
+     *
+     * @return number of requests applied.
+     */
+    public int poll() {
+        accept();
+        int count = 0;
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] != null) {
+                count += read(i);
+            }
+        }
+        // requests of one session produce reports for the others, all are sent once
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] != null) {
+                flush(i);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void onExecution(long executionReport) {
+        int owner = ExecutionReport.getOwner(executionReport);
+        if (owner < 1) {
+            return;
+        }
+        int session = (owner - 1) % channels.length;
+        if (owners[session] != owner) {
+            // order of closed session
+            return;
+        }
+        long response = reserve(session);
+        if (response != 0) {
+            GatewayMessage.setType(response, GatewayMessage.EXECUTION_REPORT);
+            Unsafe.getUnsafe().copyMemory(executionReport, GatewayMessage.getExecutionReport(response), ExecutionReport.SIZE);
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel;
+        while ((channel = acceptChannel()) != null) {
+            int session = 0;
+            while (session < channels.length && channels[session] != null) {
+                session++;
+            }
+            // owner ID identifies session slot and is not reused by later connections to the slot,
+            // slot that has run out of owner IDs refuses connections
+            long owner = session == channels.length ? 0 : (long) connectionCounts[session] * channels.length + session + 1;
+            if (owner == 0 || owner > Integer.MAX_VALUE) {
+                closeChannel(channel);
+                continue;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                acceptFailureCount++;
+                closeChannel(channel);
+                continue;
+            }
+            channels[session] = channel;
+            owners[session] = (int) owner;
+            connectionCounts[session]++;
+            // Buffer methods, ByteBuffer overrides do not exist in Java 8
+            ((Buffer) inBuffers[session]).clear();
+            ((Buffer) outBuffers[session]).clear();
+        }
+    }
+
+    /**
+     * @return next pending connection, null if there is none or accepting it failed.
+     */
+    private SocketChannel acceptChannel() {
+        try {
+            return serverChannel.accept();
+        } catch (IOException e) {
+            acceptFailureCount++;
+            return null;
+        }
+    }
+
+    private int read(int session) {
+        ByteBuffer in = inBuffers[session];
+        int n;
+        try {
+            n = channels[session].read(in);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 1) {
+            if (n < 0) {
+                closeSession(session);
+            }
+            return 0;
+        }
+
+        int count = 0;
+        long message = inAddresses[session];
+        long limit = message + in.position();
+        while (message + GatewayMessage.REQUEST_SIZE <= limit) {
+            apply(session, message);
+            count++;
+            if (channels[session] == null) {
+                return count;
+            }
+            message += GatewayMessage.REQUEST_SIZE;
+        }
+        // partial request is moved to the start of the buffer
+        int partial = (int) (limit - message);
+        Unsafe.getUnsafe().copyMemory(message, inAddresses[session], partial);
+        ((Buffer) in).position(partial);
+        return count;
+    }
+
+    private void apply(int session, long message) {
+        final byte type = GatewayMessage.getType(message);
+        final long orderID;
+        final boolean result;
+        switch (type) {
+            case GatewayMessage.NEW_ORDER:
+                long order = GatewayMessage.getOrder(message);
+                Order.setOwner(order, owners[session]);
+                // acknowledgement carries ID the order gets and goes out ahead of its execution reports
+                result = orderBook.isAccepted(order);
+                orderID = result ? orderBook.getNextOrderID() : -1;
+                respond(session, type, result, orderID);
+                if (result) {
+                    long id = orderBook.placeOrder(order);
+                    assert id == orderID;
+                }
+                return;
+            case GatewayMessage.CANCEL_ORDER:
+                orderID = GatewayMessage.getOrderID(message);
+                result = orderBook.getOrderOwner(orderID) == owners[session] && orderBook.cancelOrder(orderID);
+                break;
+            case GatewayMessage.AMEND_ORDER:
+                orderID = GatewayMessage.getOrderID(message);
+                result = orderBook.getOrderOwner(orderID) == owners[session]
+                        && orderBook.amendOrder(orderID, GatewayMessage.getPrice(message), GatewayMessage.getSize(message));
+                break;
+            default:
+                closeSession(session);
+                return;
+        }
+        // session may have been closed while its executions were reported
+        if (channels[session] != null) {
+            respond(session, type, result, orderID);
+        }
+    }
+
+    private void respond(int session, byte type, boolean result, long orderID) {
+        long response = reserve(session);
+        if (response != 0) {
+            GatewayMessage.setType(response, type);
+            GatewayMessage.setResult(response, result);
+            GatewayMessage.setOrderID(response, orderID);
+        }
+    }
+
+    /**
+     * @return address of response in send buffer of the session, 0 if session had to be closed.
+     */
+    private long reserve(int session) {
+        ByteBuffer out = outBuffers[session];
+        if (out.remaining() < GatewayMessage.RESPONSE_SIZE) {
+            flush(session);
+            if (channels[session] == null || out.remaining() < GatewayMessage.RESPONSE_SIZE) {
+                closeSession(session);
+                return 0;
+            }
+        }
+        long response = outAddresses[session] + out.position();
+        ((Buffer) out).position(out.position() + GatewayMessage.RESPONSE_SIZE);
+        return response;
+    }
+
+    private void flush(int session) {
+        ByteBuffer out = outBuffers[session];
+        if (out.position() == 0) {
+            return;
+        }
+        ((Buffer) out).flip();
+        try {
+            channels[session].write(out);
+        } catch (IOException e) {
+            closeSession(session);
+            return;
+        }
+        out.compact();
+    }
+
+    private void closeSession(int session) {
+        SocketChannel channel = channels[session];
+        if (channel != null) {
+            channels[session] = null;
+            owners[session] = 0;
+            closeChannel(channel);
+        }
+    }
+
+    private static void closeChannel(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+            // socket is gone either way
+        }
+    }
+}
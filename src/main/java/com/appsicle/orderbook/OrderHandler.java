@@ -0,0 +1,11 @@
+package com.appsicle.orderbook;
+
+/**
+ * Consumes order records taken off {@link OrderQueue}. To access order attributes use
+ * {@link com.appsicle.orderbook.model.Order}, cancel and amend records are told apart by
+ * {@link OrderQueue#getCommand(long)}. Record memory is reused once this method returns.
+ */
+@FunctionalInterface
+public interface OrderHandler {
+    void onOrder(long order);
+}
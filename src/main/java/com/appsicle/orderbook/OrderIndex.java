@@ -0,0 +1,141 @@
+package com.appsicle.orderbook;
+
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Off-heap map of order ID to address of resting order book entry. Order IDs are
+ * sequential, so masking alone spreads them evenly over buckets. Collisions are resolved
+ * by linear probing and removal shifts subsequent entries back, so heavy cancel flow
+ * does not leave tombstones behind. Index doubles and rehashes when it gets half full.
+ */
+final class OrderIndex implements Closeable {
+    private static final int ENTRY_SIZE = 16;
+    private static final long NO_KEY = -1;
+
+    private long mask;
+    private long memSize;
+    private long mem;
+    private long size;
+
+    OrderIndex(long expectedEntries) {
+        // keep load factor at or below 0.5
+        long capacity = 1;
+        while (capacity < expectedEntries * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    @Override
+    public void close() {
+        Unsafe.free(mem, memSize);
+    }
+
+    long get(long orderID) {
+        long index = orderID & mask;
+        do {
+            long key = getKey(index);
+            // empty slot is checked first, NO_KEY is not a valid order ID
+            if (key == NO_KEY) {
+                return 0;
+            }
+            if (key == orderID) {
+                return getValue(index);
+            }
+            index = (index + 1) & mask;
+        } while (true);
+    }
+
+    void put(long orderID, long orderBookEntry) {
+        if (insert(orderID, orderBookEntry) && ++size * 2 > mask + 1) {
+            grow();
+        }
+    }
+
+    /**
+     * @return true if order ID was not in the index.
+     */
+    private boolean insert(long orderID, long orderBookEntry) {
+        long index = orderID & mask;
+        do {
+            long key = getKey(index);
+            if (key == NO_KEY || key == orderID) {
+                setKey(index, orderID);
+                setValue(index, orderBookEntry);
+                return key == NO_KEY;
+            }
+            index = (index + 1) & mask;
+        } while (true);
+    }
+
+    private void grow() {
+        long oldMem = mem;
+        long oldMemSize = memSize;
+        allocate((mask + 1) * 2);
+        for (long entry = oldMem, limit = oldMem + oldMemSize; entry < limit; entry += ENTRY_SIZE) {
+            long key = Unsafe.getUnsafe().getLong(entry);
+            if (key != NO_KEY) {
+                insert(key, Unsafe.getUnsafe().getLong(entry + 8));
+            }
+        }
+        Unsafe.free(oldMem, oldMemSize);
+    }
+
+    private void allocate(long capacity) {
+        this.mask = capacity - 1;
+        this.memSize = capacity * ENTRY_SIZE;
+        this.mem = Unsafe.malloc(memSize);
+        Unsafe.getUnsafe().setMemory(mem, memSize, (byte) -1);
+    }
+
+    void remove(long orderID) {
+        long index = orderID & mask;
+        do {
+            long key = getKey(index);
+            if (key == orderID) {
+                break;
+            }
+            if (key == NO_KEY) {
+                return;
+            }
+            index = (index + 1) & mask;
+        } while (true);
+        size--;
+
+        // shift back entries that would otherwise become unreachable
+        long next = index;
+        do {
+            next = (next + 1) & mask;
+            long key = getKey(next);
+            if (key == NO_KEY) {
+                break;
+            }
+            long home = key & mask;
+            boolean keep = index <= next ? index < home && home <= next : index < home || home <= next;
+            if (!keep) {
+                setKey(index, key);
+                setValue(index, getValue(next));
+                index = next;
+            }
+        } while (true);
+        setKey(index, NO_KEY);
+    }
+
+    private long getKey(long index) {
+        return Unsafe.getUnsafe().getLong(mem + index * ENTRY_SIZE);
+    }
+
+    private void setKey(long index, long key) {
+        Unsafe.getUnsafe().putLong(mem + index * ENTRY_SIZE, key);
+    }
+
+    private long getValue(long index) {
+        return Unsafe.getUnsafe().getLong(mem + index * ENTRY_SIZE + 8);
+    }
+
+    private void setValue(long index, long value) {
+        Unsafe.getUnsafe().putLong(mem + index * ENTRY_SIZE + 8, value);
+    }
+}
@@ -0,0 +1,248 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.Order;
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Write-ahead journal of accepted order book input, appended to a memory mapped file as fixed size records.
+ * Matching is deterministic, so replaying the journal through a fresh order book rebuilds the same book.
+ * Journal is synced every {@code groupCommitSize} records or on {@link #sync()}.
+ */
+public final class OrderJournal implements Closeable {
+    public static final long DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    static final byte LIMIT_ORDER = 1;
+    static final byte CANCEL_ORDER = 2;
+    static final byte AMEND_ORDER = 3;
+
+    // record layout: sequence + 1, timestamp, type, order or cancel/amend arguments
+    static final int RECORD_SIZE = 64;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int TYPE_OFFSET = 16;
+    private static final int ORDER_OFFSET = 20;
+    private static final int ORDER_ID_OFFSET = 24;
+    private static final int PRICE_OFFSET = 32;
+    private static final int SIZE_OFFSET = 40;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long windowSize;
+    private final int groupCommitSize;
+    private MappedByteBuffer window;
+    // keeps window being replayed reachable, GC unmaps it otherwise
+    private MappedByteBuffer replayWindow;
+    private long windowAddress;
+    private long windowPosition;
+    private long record;
+    private long recordCount;
+    private long uncommitted;
+    // window was dropped with records not synced yet, next sync syncs the whole file
+    private boolean unsyncedWindows;
+    private long syncCount;
+
+    /**
+     * Opens or creates journal file. New records are appended after the records already in the file.
+     *
+     * @param windowSize      size of mapped window, multiple of 64 bytes
+     * @param groupCommitSize number of records between syncs to disk, 0 leaves syncing to {@link #sync()}
+     *                        and operating system
+     */
+    public OrderJournal(File file, long windowSize, int groupCommitSize) throws IOException {
+        assert windowSize > 0 && windowSize % RECORD_SIZE == 0;
+        assert ORDER_OFFSET + Order.SIZE <= RECORD_SIZE;
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.windowSize = windowSize;
+        this.groupCommitSize = groupCommitSize;
+
+        map(0);
+        while (getSequence(record) == recordCount + 1) {
+            recordCount++;
+            nextRecord();
+        }
+    }
+
+    public OrderJournal(File file, int groupCommitSize) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE, groupCommitSize);
+    }
+
+    @Override
+    public void close() {
+        try {
+            sync();
+            channel.close();
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return number of records in the journal.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Syncs records appended so far to disk.
+     */
+    public void sync() {
+        if (unsyncedWindows) {
+            // file sync writes back dirty pages of every mapping of the file, dropped windows included
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            unsyncedWindows = false;
+        } else {
+            window.force();
+        }
+        syncCount++;
+        uncommitted = 0;
+    }
+
+    /**
+     * @return number of syncs to disk so far.
+     */
+    long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Applies every record in the journal to a fresh order book that does not have this journal attached.
+     *
+     * @return number of records replayed.
+     */
+    public long replay(OrderBook orderBook) throws IOException {
+        return replay(orderBook, 0);
+    }
+
+    /**
+     * Applies journal tail to the order book restored from snapshot.
+     *
+     * @param fromRecord number of records snapshot covers, as returned by {@link OrderBook#restoreSnapshot(File)}
+     * @return number of records replayed.
+     */
+    public long replay(OrderBook orderBook, long fromRecord) throws IOException {
+        long count = fromRecord;
+        while (count < recordCount) {
+            long offset = count * RECORD_SIZE;
+            long position = offset - offset % windowSize;
+            replayWindow = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            long address = MappedMemory.getAddress(replayWindow);
+            long limit = address + windowSize;
+            for (long r = address + offset - position; r < limit && count < recordCount; r += RECORD_SIZE) {
+                assert getSequence(r) == count + 1;
+                apply(r, orderBook);
+                count++;
+            }
+        }
+        replayWindow = null;
+        return count - fromRecord;
+    }
+
+    void appendLimitOrder(long order, long timestamp) {
+        writeLimitOrder(record, order, timestamp);
+        commit();
+    }
+
+    void appendCancelOrder(long orderID) {
+        writeCancelOrder(record, orderID);
+        commit();
+    }
+
+    void appendAmendOrder(long orderID, long price, long size, long timestamp) {
+        writeAmendOrder(record, orderID, price, size, timestamp);
+        commit();
+    }
+
+    /**
+     * Record writers and {@link #apply(long, OrderBook)} are shared with {@link ReplicationChannel},
+     * which ships records of the same layout. Sequence is left to the caller.
+     */
+    static void writeLimitOrder(long record, long order, long timestamp) {
+        Unsafe.getUnsafe().putLong(record + TIMESTAMP_OFFSET, timestamp);
+        Unsafe.getUnsafe().putByte(record + TYPE_OFFSET, LIMIT_ORDER);
+        Unsafe.getUnsafe().copyMemory(order, record + ORDER_OFFSET, Order.SIZE);
+    }
+
+    static void writeCancelOrder(long record, long orderID) {
+        Unsafe.getUnsafe().putByte(record + TYPE_OFFSET, CANCEL_ORDER);
+        Unsafe.getUnsafe().putLong(record + ORDER_ID_OFFSET, orderID);
+    }
+
+    static void writeAmendOrder(long record, long orderID, long price, long size, long timestamp) {
+        Unsafe.getUnsafe().putLong(record + TIMESTAMP_OFFSET, timestamp);
+        Unsafe.getUnsafe().putByte(record + TYPE_OFFSET, AMEND_ORDER);
+        Unsafe.getUnsafe().putLong(record + ORDER_ID_OFFSET, orderID);
+        Unsafe.getUnsafe().putLong(record + PRICE_OFFSET, price);
+        Unsafe.getUnsafe().putLong(record + SIZE_OFFSET, size);
+    }
+
+    static void apply(long record, OrderBook orderBook) {
+        switch (Unsafe.getUnsafe().getByte(record + TYPE_OFFSET)) {
+            case LIMIT_ORDER:
+                orderBook.placeOrder(record + ORDER_OFFSET, Unsafe.getUnsafe().getLong(record + TIMESTAMP_OFFSET));
+                break;
+            case CANCEL_ORDER:
+                orderBook.cancelOrder(Unsafe.getUnsafe().getLong(record + ORDER_ID_OFFSET));
+                break;
+            case AMEND_ORDER:
+                orderBook.amendOrder(
+                        Unsafe.getUnsafe().getLong(record + ORDER_ID_OFFSET),
+                        Unsafe.getUnsafe().getLong(record + PRICE_OFFSET),
+                        Unsafe.getUnsafe().getLong(record + SIZE_OFFSET),
+                        Unsafe.getUnsafe().getLong(record + TIMESTAMP_OFFSET)
+                );
+                break;
+            default:
+                assert false;
+                break;
+        }
+    }
+
+    private void commit() {
+        // sequence goes last, record is not visible to replay until it is complete
+        Unsafe.getUnsafe().putOrderedLong(null, record, ++recordCount);
+        uncommitted++;
+        nextRecord();
+        if (groupCommitSize > 0 && uncommitted == groupCommitSize) {
+            sync();
+        }
+    }
+
+    private void nextRecord() {
+        record += RECORD_SIZE;
+        if (record == windowAddress + windowSize) {
+            if (uncommitted > 0) {
+                unsyncedWindows = true;
+            }
+            map(windowPosition + windowSize);
+        }
+    }
+
+    private void map(long position) {
+        try {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, position, windowSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        windowPosition = position;
+        windowAddress = MappedMemory.getAddress(window);
+        record = windowAddress;
+    }
+
+    private static long getSequence(long record) {
+        return Unsafe.getUnsafe().getLongVolatile(null, record);
+    }
+}
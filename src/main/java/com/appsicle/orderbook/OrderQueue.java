@@ -0,0 +1,225 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderTypes;
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Bounded multiple-producer single-consumer queue of {@link Order} records, cancels and amends in off-heap memory.
+ * Every slot occupies its own cache line and is published by advancing its sequence number.
+ */
+public class OrderQueue implements Closeable {
+    public static final byte NEW_ORDER = 0;
+    public static final byte CANCEL_ORDER = 1;
+    public static final byte AMEND_ORDER = 2;
+
+    private static final int SLOT_SIZE = 64;
+    private static final int ORDER_OFFSET = 8;
+    // command and order ID follow order record
+    private static final int COMMAND_OFFSET = Order.SIZE;
+    private static final int ORDER_ID_OFFSET = 48;
+    private static final int CACHE_LINE_SIZE = 64;
+    private static final int HEADER_SIZE = 3 * CACHE_LINE_SIZE;
+    private static final int PRODUCER_CURSOR_OFFSET = CACHE_LINE_SIZE;
+
+    private final long mem;
+    private final long memSize;
+    private final long slots;
+    private final long mask;
+    private final long capacity;
+    private long consumerCursor;
+
+    /**
+     * @param capacity number of order records, rounded up to power of 2.
+     */
+    public OrderQueue(long capacity) {
+        assert COMMAND_OFFSET < ORDER_ID_OFFSET && ORDER_OFFSET + ORDER_ID_OFFSET + 8 <= SLOT_SIZE;
+        long n = 1;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        this.capacity = n;
+        this.mask = n - 1;
+        this.memSize = HEADER_SIZE + n * SLOT_SIZE + CACHE_LINE_SIZE;
+        this.mem = Unsafe.malloc(memSize);
+        // align slots to cache line
+        this.slots = (mem + HEADER_SIZE + CACHE_LINE_SIZE - 1) & -CACHE_LINE_SIZE;
+        Unsafe.getUnsafe().setMemory(mem, memSize, (byte) 0);
+        for (long i = 0; i < n; i++) {
+            Unsafe.getUnsafe().putLong(slots + i * SLOT_SIZE, i);
+        }
+        Unsafe.getUnsafe().storeFence();
+    }
+
+    @Override
+    public void close() {
+        Unsafe.free(mem, memSize);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Copies order record into the queue. Safe to call from any number of threads.
+     *
+     * @return false when queue is full.
+     */
+    public boolean offer(long order) {
+        long slot = claim();
+        if (slot == 0) {
+            return false;
+        }
+        Unsafe.getUnsafe().copyMemory(order, slot + ORDER_OFFSET, Order.SIZE);
+        Unsafe.getUnsafe().putByte(slot + ORDER_OFFSET + COMMAND_OFFSET, NEW_ORDER);
+        publish(slot);
+        return true;
+    }
+
+    /**
+     * Writes limit order attributes straight into the queue. Safe to call from any number of threads.
+     *
+     * @return false when queue is full.
+     */
+    public boolean offer(byte side, long price, long size) {
+        return offer(0, side, price, size);
+    }
+
+    /**
+     * Same as {@link #offer(byte, long, long)} for queues shared by order books of multiple symbols.
+     */
+    public boolean offer(int symbol, byte side, long price, long size) {
+        long slot = claim();
+        if (slot == 0) {
+            return false;
+        }
+        long order = slot + ORDER_OFFSET;
+        Order.setSymbol(order, symbol);
+        Order.setSide(order, side);
+        Order.setPrice(order, price);
+        Order.setSize(order, size);
+        Order.setType(order, OrderTypes.LIMIT);
+        Order.setOwner(order, 0);
+        Unsafe.getUnsafe().putByte(order + COMMAND_OFFSET, NEW_ORDER);
+        publish(slot);
+        return true;
+    }
+
+    /**
+     * Queues cancel of resting order, see {@link OrderBook#cancelOrder(long)}.
+     *
+     * @return false when queue is full.
+     */
+    public boolean offerCancel(int symbol, long orderID) {
+        long slot = claim();
+        if (slot == 0) {
+            return false;
+        }
+        long record = slot + ORDER_OFFSET;
+        Order.setSymbol(record, symbol);
+        Unsafe.getUnsafe().putByte(record + COMMAND_OFFSET, CANCEL_ORDER);
+        Unsafe.getUnsafe().putLong(record + ORDER_ID_OFFSET, orderID);
+        publish(slot);
+        return true;
+    }
+
+    /**
+     * Queues amend of resting order, see {@link OrderBook#amendOrder(long, long, long)}.
+     *
+     * @return false when queue is full.
+     */
+    public boolean offerAmend(int symbol, long orderID, long newPrice, long newSize) {
+        long slot = claim();
+        if (slot == 0) {
+            return false;
+        }
+        long record = slot + ORDER_OFFSET;
+        Order.setSymbol(record, symbol);
+        Order.setPrice(record, newPrice);
+        Order.setSize(record, newSize);
+        Unsafe.getUnsafe().putByte(record + COMMAND_OFFSET, AMEND_ORDER);
+        Unsafe.getUnsafe().putLong(record + ORDER_ID_OFFSET, orderID);
+        publish(slot);
+        return true;
+    }
+
+    /**
+     * @param record record passed to {@link OrderHandler}
+     * @return {@link #NEW_ORDER}, {@link #CANCEL_ORDER} or {@link #AMEND_ORDER}. Cancel and amend records carry
+     * symbol and order ID, amend also new price and size in {@link Order} price and size.
+     */
+    public static byte getCommand(long record) {
+        return Unsafe.getUnsafe().getByte(record + COMMAND_OFFSET);
+    }
+
+    /**
+     * @return ID of order to cancel or amend.
+     */
+    public static long getOrderID(long record) {
+        return Unsafe.getUnsafe().getLong(record + ORDER_ID_OFFSET);
+    }
+
+    /**
+     * Applies queued command to the order book.
+     */
+    static void apply(long record, OrderBook orderBook) {
+        switch (getCommand(record)) {
+            case CANCEL_ORDER:
+                orderBook.cancelOrder(getOrderID(record));
+                break;
+            case AMEND_ORDER:
+                orderBook.amendOrder(getOrderID(record), Order.getPrice(record), Order.getSize(record));
+                break;
+            default:
+                orderBook.placeOrder(record);
+                break;
+        }
+    }
+
+    /**
+     * Passes up to limit published records to the handler in the order they were claimed.
+     * Must only be called from consumer thread.
+     *
+     * @return number of orders consumed.
+     */
+    public int drain(OrderHandler handler, int limit) {
+        int count = 0;
+        while (count < limit) {
+            long slot = slots + (consumerCursor & mask) * SLOT_SIZE;
+            if (Unsafe.getUnsafe().getLongVolatile(null, slot) != consumerCursor + 1) {
+                break;
+            }
+            handler.onOrder(slot + ORDER_OFFSET);
+            // slot is free for producer that is a full lap ahead
+            Unsafe.getUnsafe().putOrderedLong(null, slot, consumerCursor + capacity);
+            consumerCursor++;
+            count++;
+        }
+        return count;
+    }
+
+    private long claim() {
+        final long cursorAddress = mem + PRODUCER_CURSOR_OFFSET;
+        long cursor = Unsafe.getUnsafe().getLongVolatile(null, cursorAddress);
+        do {
+            long slot = slots + (cursor & mask) * SLOT_SIZE;
+            long sequence = Unsafe.getUnsafe().getLongVolatile(null, slot);
+            if (sequence == cursor) {
+                if (Unsafe.getUnsafe().compareAndSwapLong(null, cursorAddress, cursor, cursor + 1)) {
+                    return slot;
+                }
+            } else if (sequence < cursor) {
+                // consumer has not released this slot yet
+                return 0;
+            }
+            cursor = Unsafe.getUnsafe().getLongVolatile(null, cursorAddress);
+        } while (true);
+    }
+
+    private void publish(long slot) {
+        // sequence of claimed slot equals producer cursor value at the time of claim
+        Unsafe.getUnsafe().putOrderedLong(null, slot, Unsafe.getUnsafe().getLong(slot) + 1);
+    }
+}
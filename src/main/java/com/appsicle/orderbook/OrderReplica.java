@@ -0,0 +1,76 @@
+package com.appsicle.orderbook;
+
+/**
+ * Hot standby order book that follows the primary through a {@link ReplicationChannel}. Order book must be fresh
+ * and set up the same way as the primary. {@link #poll(int)} is called by the thread that owns the order book.
+ */
+public final class OrderReplica {
+    private final ReplicationChannel channel;
+    private final int replica;
+    private final OrderBook orderBook;
+    private long sequence;
+    private boolean promoted;
+
+    /**
+     * @param replica index of replica in the channel, from 0 to replica count - 1
+     */
+    public OrderReplica(ReplicationChannel channel, int replica, OrderBook orderBook) {
+        assert replica >= 0 && replica < channel.getReplicaCount();
+        assert channel.getReplicaSequence(replica) == 0;
+        this.channel = channel;
+        this.replica = replica;
+        this.orderBook = orderBook;
+    }
+
+    public OrderBook getOrderBook() {
+        return orderBook;
+    }
+
+    /**
+     * @return number of records applied.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return number of records primary has published and this replica has not applied yet.
+     */
+    public long getLag() {
+        return channel.getPublishedSequence() - sequence;
+    }
+
+    /**
+     * Applies up to limit published records to the order book.
+     *
+     * @return number of records applied.
+     */
+    public int poll(int limit) {
+        assert !promoted;
+        int count = 0;
+        while (count < limit) {
+            long record = channel.getRecord(sequence);
+            if (!ReplicationChannel.isPublished(record, sequence)) {
+                break;
+            }
+            OrderJournal.apply(record, orderBook);
+            sequence++;
+            count++;
+        }
+        if (count > 0) {
+            channel.setReplicaSequence(replica, sequence);
+        }
+        return count;
+    }
+
+    /**
+     * Turns replica into primary after applying the records published so far. Primary must have stopped publishing.
+     *
+     * @return number of records applied during promotion.
+     */
+    public long promote() {
+        long count = poll(Integer.MAX_VALUE);
+        promoted = true;
+        return count;
+    }
+}
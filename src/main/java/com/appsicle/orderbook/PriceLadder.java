@@ -0,0 +1,287 @@
+package com.appsicle.orderbook;
+
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Price points stored in off-heap pages that are allocated on first order and released when emptied.
+ * Occupancy bitmaps of pages and of the directory let searches skip empty levels. Directory spans at most
+ * {@link #MAX_DIRECTORY_PAGES} pages, unless initial price range is wider.
+ */
+final class PriceLadder implements Closeable {
+    static final long NO_PRICE_ABOVE = Long.MAX_VALUE;
+    static final long NO_PRICE_BELOW = Long.MIN_VALUE;
+
+    // 8 MB directory, 2^30 prices
+    static final long MAX_DIRECTORY_PAGES = 1L << 20;
+
+    private static final int PAGE_BITS = 10;
+    private static final long PAGE_PRICE_COUNT = 1L << PAGE_BITS;
+    private static final long PAGE_PRICE_MASK = PAGE_PRICE_COUNT - 1;
+
+    private final long pricePointSize;
+    private final long pageHeaderSize;
+    private final long pageSize;
+    private long directory;
+    private long directoryPages;
+    private long directoryMemSize;
+    private long directoryBitmap;
+    private long directoryBitmapMemSize;
+    // page number of the first directory slot
+    private long firstPage;
+    // last released page is kept to avoid malloc churn when price oscillates around page boundary
+    private long sparePage;
+    private OrderBookMetrics metrics;
+
+    /**
+     * @param pricePointSize size of price point entry of the book's layout, power of 2.
+     */
+    PriceLadder(long minPrice, long maxPrice, int pricePointSize) {
+        assert Integer.bitCount(pricePointSize) == 1;
+        this.pricePointSize = pricePointSize;
+        // bitmap header rounded up to price point entry alignment
+        this.pageHeaderSize = (OccupancyBitmap.getMemSize(PAGE_PRICE_COUNT) + pricePointSize - 1) & -pricePointSize;
+        this.pageSize = pageHeaderSize + PAGE_PRICE_COUNT * pricePointSize;
+        this.firstPage = minPrice >> PAGE_BITS;
+        allocateDirectory((maxPrice >> PAGE_BITS) - firstPage + 1);
+    }
+
+    void setMetrics(OrderBookMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void close() {
+        for (long slot = 0; slot < directoryPages; slot++) {
+            long page = getPage(slot);
+            if (page != 0) {
+                Unsafe.free(page, pageSize);
+            }
+        }
+        if (sparePage != 0) {
+            Unsafe.free(sparePage, pageSize);
+            sparePage = 0;
+        }
+        Unsafe.free(directory, directoryMemSize);
+        Unsafe.free(directoryBitmap, directoryBitmapMemSize);
+    }
+
+    /**
+     * @return true if directory can cover the price without spanning more than {@link #MAX_DIRECTORY_PAGES}
+     * pages or its current size, if that is larger.
+     */
+    boolean accepts(long price) {
+        long pageNumber = price >> PAGE_BITS;
+        long lastPage = firstPage + directoryPages - 1;
+        return Math.max(lastPage, pageNumber) - Math.min(firstPage, pageNumber) < Math.max(MAX_DIRECTORY_PAGES, directoryPages);
+    }
+
+    /**
+     * Finds price point entry for the price, allocating its page when necessary. Price must be
+     * {@link #accepts(long) accepted}.
+     */
+    long getPricePointEntry(long price) {
+        long pageNumber = price >> PAGE_BITS;
+        if (pageNumber < firstPage || pageNumber - firstPage >= directoryPages) {
+            growDirectory(pageNumber);
+        }
+        long slot = pageNumber - firstPage;
+        long page = getPage(slot);
+        if (page == 0) {
+            page = allocatePage(slot);
+        }
+        return page + pageHeaderSize + (price & PAGE_PRICE_MASK) * pricePointSize;
+    }
+
+    /**
+     * Finds price point entry for the price without allocating its page, so that page is never left
+     * without occupied price points.
+     *
+     * @return address of price point entry, 0 if its page is not allocated and price point is empty.
+     */
+    long findPricePointEntry(long price) {
+        long slot = (price >> PAGE_BITS) - firstPage;
+        if (slot < 0 || slot >= directoryPages) {
+            return 0;
+        }
+        long page = getPage(slot);
+        return page == 0 ? 0 : page + pageHeaderSize + (price & PAGE_PRICE_MASK) * pricePointSize;
+    }
+
+    /**
+     * Marks price point as having resting orders. Its page must have been allocated by
+     * {@link #getPricePointEntry(long)}.
+     */
+    void setOccupied(long price) {
+        OccupancyBitmap.set(getPage((price >> PAGE_BITS) - firstPage), price & PAGE_PRICE_MASK);
+    }
+
+    /**
+     * Marks price point as empty. Page is released when this was its last occupied price point,
+     * entry address must not be used after this call.
+     */
+    void clearOccupied(long price) {
+        long slot = (price >> PAGE_BITS) - firstPage;
+        long page = getPage(slot);
+        OccupancyBitmap.clear(page, price & PAGE_PRICE_MASK);
+        if (OccupancyBitmap.nextSetBit(page, 0) == -1) {
+            releasePage(slot, page);
+        }
+    }
+
+    /**
+     * @return lowest occupied price at or above given price, {@link #NO_PRICE_ABOVE} when there is none.
+     */
+    long nextOccupied(long price) {
+        long slot = (price >> PAGE_BITS) - firstPage;
+        if (slot >= directoryPages) {
+            return NO_PRICE_ABOVE;
+        }
+
+        if (slot < 0) {
+            slot = OccupancyBitmap.nextSetBit(directoryBitmap, 0);
+        } else {
+            long page = getPage(slot);
+            if (page != 0) {
+                long bit = OccupancyBitmap.nextSetBit(page, price & PAGE_PRICE_MASK);
+                if (bit > -1) {
+                    return toPrice(slot, bit);
+                }
+            }
+            slot = OccupancyBitmap.nextSetBit(directoryBitmap, slot + 1);
+        }
+
+        // allocated pages always have occupied price points
+        return slot == -1 ? NO_PRICE_ABOVE : toPrice(slot, OccupancyBitmap.nextSetBit(getPage(slot), 0));
+    }
+
+    /**
+     * @return highest occupied price at or below given price, {@link #NO_PRICE_BELOW} when there is none.
+     */
+    long prevOccupied(long price) {
+        long slot = (price >> PAGE_BITS) - firstPage;
+        if (slot < 0) {
+            return NO_PRICE_BELOW;
+        }
+
+        if (slot >= directoryPages) {
+            slot = OccupancyBitmap.prevSetBit(directoryBitmap, directoryPages - 1);
+        } else {
+            long page = getPage(slot);
+            if (page != 0) {
+                long bit = OccupancyBitmap.prevSetBit(page, price & PAGE_PRICE_MASK);
+                if (bit > -1) {
+                    return toPrice(slot, bit);
+                }
+            }
+            slot = OccupancyBitmap.prevSetBit(directoryBitmap, slot - 1);
+        }
+
+        return slot == -1 ? NO_PRICE_BELOW : toPrice(slot, OccupancyBitmap.prevSetBit(getPage(slot), PAGE_PRICE_MASK));
+    }
+
+    /**
+     * @return number of occupied price points between two prices, both inclusive.
+     */
+    long countOccupied(long fromPrice, long toPrice) {
+        if (fromPrice > toPrice) {
+            return 0;
+        }
+        long toSlot = Math.min((toPrice >> PAGE_BITS) - firstPage, directoryPages - 1);
+        long count = 0;
+        long slot = OccupancyBitmap.nextSetBit(directoryBitmap, (fromPrice >> PAGE_BITS) - firstPage);
+        while (slot > -1 && slot <= toSlot) {
+            long pagePrice = toPrice(slot, 0);
+            count += OccupancyBitmap.countSetBits(
+                    getPage(slot),
+                    Math.max(fromPrice - pagePrice, 0),
+                    Math.min(toPrice - pagePrice, PAGE_PRICE_MASK)
+            );
+            slot = OccupancyBitmap.nextSetBit(directoryBitmap, slot + 1);
+        }
+        return count;
+    }
+
+    private long toPrice(long slot, long bit) {
+        return ((firstPage + slot) << PAGE_BITS) + bit;
+    }
+
+    private long getPage(long slot) {
+        return Unsafe.getUnsafe().getLong(directory + slot * 8);
+    }
+
+    private void setPage(long slot, long page) {
+        Unsafe.getUnsafe().putLong(directory + slot * 8, page);
+    }
+
+    private long allocatePage(long slot) {
+        long page = sparePage;
+        if (page == 0) {
+            page = Unsafe.malloc(pageSize);
+            Unsafe.getUnsafe().setMemory(page, pageSize, (byte) 0);
+            OccupancyBitmap.init(page, PAGE_PRICE_COUNT);
+        } else {
+            // released pages have all their price points emptied already
+            sparePage = 0;
+        }
+        setPage(slot, page);
+        OccupancyBitmap.set(directoryBitmap, slot);
+        return page;
+    }
+
+    private void releasePage(long slot, long page) {
+        setPage(slot, 0);
+        OccupancyBitmap.clear(directoryBitmap, slot);
+        if (sparePage == 0) {
+            sparePage = page;
+        } else {
+            Unsafe.free(page, pageSize);
+        }
+    }
+
+    private void allocateDirectory(long pages) {
+        directoryPages = pages;
+        directoryMemSize = pages * 8;
+        directory = Unsafe.malloc(directoryMemSize);
+        Unsafe.getUnsafe().setMemory(directory, directoryMemSize, (byte) 0);
+        directoryBitmapMemSize = OccupancyBitmap.getMemSize(pages);
+        directoryBitmap = Unsafe.malloc(directoryBitmapMemSize);
+        OccupancyBitmap.init(directoryBitmap, pages);
+    }
+
+    private void growDirectory(long pageNumber) {
+        assert accepts(pageNumber << PAGE_BITS);
+        final long oldDirectory = directory;
+        final long oldDirectoryMemSize = directoryMemSize;
+        final long oldDirectoryBitmap = directoryBitmap;
+        final long oldDirectoryBitmapMemSize = directoryBitmapMemSize;
+        final long oldFirstPage = firstPage;
+
+        // leave room to grow further in the same direction
+        long lastPage = firstPage + directoryPages - 1;
+        long room = Math.min(directoryPages * 2, MAX_DIRECTORY_PAGES);
+        long pages;
+        if (pageNumber < firstPage) {
+            pages = Math.max(lastPage - pageNumber + 1, room);
+            firstPage = lastPage - pages + 1;
+        } else {
+            pages = Math.max(pageNumber - firstPage + 1, room);
+        }
+
+        allocateDirectory(pages);
+        long slot = OccupancyBitmap.nextSetBit(oldDirectoryBitmap, 0);
+        while (slot > -1) {
+            long newSlot = slot + oldFirstPage - firstPage;
+            setPage(newSlot, Unsafe.getUnsafe().getLong(oldDirectory + slot * 8));
+            OccupancyBitmap.set(directoryBitmap, newSlot);
+            slot = OccupancyBitmap.nextSetBit(oldDirectoryBitmap, slot + 1);
+        }
+        Unsafe.free(oldDirectory, oldDirectoryMemSize);
+        Unsafe.free(oldDirectoryBitmap, oldDirectoryBitmapMemSize);
+
+        if (OrderBookMetrics.ENABLED && metrics != null) {
+            metrics.increment(OrderBookMetrics.RESIZE_COUNT);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.appsicle.orderbook;
+
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Single producer ring in a memory mapped file that ships accepted order book input to {@link OrderReplica}s,
+ * in the record layout of {@link OrderJournal}. Primary waits while the ring is full, so a replica that stops
+ * polling stalls it. Every primary session should use a new file.
+ *
+ * @see OrderBook#setReplicationChannel(ReplicationChannel)
+ */
+public final class ReplicationChannel implements Closeable {
+    private static final int CACHE_LINE_SIZE = 64;
+
+    private final RandomAccessFile file;
+    private final FileChannel fileChannel;
+    // keeps mapping reachable, GC unmaps it otherwise
+    private final MappedByteBuffer buffer;
+    private final long address;
+    private final long records;
+    private final long capacity;
+    private final long mask;
+    private final int replicaCount;
+    private final WaitStrategy waitStrategy;
+    // producer state, used by the primary only
+    private long sequence;
+    private long minReplicaSequence;
+
+    /**
+     * Opens or creates channel file. Primary and replicas have to open it with the same capacity and replica count.
+     *
+     * @param capacity     number of records in the ring, rounded up to power of 2
+     * @param replicaCount number of replicas following the primary
+     * @param waitStrategy what primary does while the ring is full
+     */
+    public ReplicationChannel(File file, long capacity, int replicaCount, WaitStrategy waitStrategy) throws IOException {
+        assert replicaCount > 0;
+        long n = 1;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        this.capacity = n;
+        this.mask = n - 1;
+        this.replicaCount = replicaCount;
+        this.waitStrategy = waitStrategy;
+        this.file = new RandomAccessFile(file, "rw");
+        this.fileChannel = this.file.getChannel();
+        long headerSize = (1L + replicaCount) * CACHE_LINE_SIZE;
+        this.buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize + n * OrderJournal.RECORD_SIZE);
+        // mapping is page aligned, so are the header cache lines
+        this.address = MappedMemory.getAddress(buffer);
+        this.records = address + headerSize;
+        this.sequence = getPublishedSequence();
+        this.minReplicaSequence = getMinReplicaSequence();
+    }
+
+    @Override
+    public void close() {
+        try {
+            fileChannel.close();
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public int getReplicaCount() {
+        return replicaCount;
+    }
+
+    /**
+     * @return number of records published by the primary. Safe to call from any thread.
+     */
+    public long getPublishedSequence() {
+        return Unsafe.getUnsafe().getLongVolatile(null, address);
+    }
+
+    void appendLimitOrder(long order, long timestamp) {
+        long record = claim();
+        OrderJournal.writeLimitOrder(record, order, timestamp);
+        publish(record);
+    }
+
+    void appendCancelOrder(long orderID) {
+        long record = claim();
+        OrderJournal.writeCancelOrder(record, orderID);
+        publish(record);
+    }
+
+    void appendAmendOrder(long orderID, long price, long size, long timestamp) {
+        long record = claim();
+        OrderJournal.writeAmendOrder(record, orderID, price, size, timestamp);
+        publish(record);
+    }
+
+    /**
+     * @return address of record with given sequence, counted from 0.
+     */
+    long getRecord(long sequence) {
+        return records + (sequence & mask) * OrderJournal.RECORD_SIZE;
+    }
+
+    /**
+     * Record holds sequence + 1 once it is complete, slot reused from the previous lap holds a smaller one.
+     */
+    static boolean isPublished(long record, long sequence) {
+        return Unsafe.getUnsafe().getLongVolatile(null, record) == sequence + 1;
+    }
+
+    long getReplicaSequence(int replica) {
+        return Unsafe.getUnsafe().getLongVolatile(null, address + (1L + replica) * CACHE_LINE_SIZE);
+    }
+
+    /**
+     * Releases records replica has applied to the primary.
+     */
+    void setReplicaSequence(int replica, long sequence) {
+        Unsafe.getUnsafe().putOrderedLong(null, address + (1L + replica) * CACHE_LINE_SIZE, sequence);
+    }
+
+    private long claim() {
+        // replica cursors are read only when the cached slowest one blocks the slot
+        if (sequence - minReplicaSequence == capacity) {
+            while ((minReplicaSequence = getMinReplicaSequence()) == sequence - capacity) {
+                waitStrategy.idle();
+            }
+        }
+        return getRecord(sequence);
+    }
+
+    private void publish(long record) {
+        // record is not visible to replicas until its sequence is written
+        Unsafe.getUnsafe().putOrderedLong(null, record, ++sequence);
+        Unsafe.getUnsafe().putOrderedLong(null, address, sequence);
+    }
+
+    private long getMinReplicaSequence() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < replicaCount; i++) {
+            min = Math.min(min, getReplicaSequence(i));
+        }
+        return min;
+    }
+}
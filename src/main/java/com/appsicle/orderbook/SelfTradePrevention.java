@@ -0,0 +1,32 @@
+package com.appsicle.orderbook;
+
+/**
+ * Modes of self-trade prevention, applied when aggressor meets resting order of the same owner.
+ * Size cancelled or decremented by self-trade prevention is reported by execution report with
+ * {@link com.appsicle.orderbook.model.ExecutionReport#NO_TRADE} trade ID for every order it affects.
+ *
+ * @see OrderBook#setSelfTradePrevention(byte)
+ */
+public final class SelfTradePrevention {
+    /**
+     * Orders trade regardless of their owner.
+     */
+    public static final byte NONE = 0;
+    /**
+     * Resting order is cancelled, aggressor carries on matching.
+     */
+    public static final byte CANCEL_RESTING = 1;
+    /**
+     * Remainder of aggressor is cancelled, resting order stays in the book.
+     */
+    public static final byte CANCEL_AGGRESSOR = 2;
+    /**
+     * Both resting order and remainder of aggressor are cancelled.
+     */
+    public static final byte CANCEL_BOTH = 3;
+    /**
+     * Smaller of the two sizes is taken off both orders without trade, aggressor carries on matching
+     * if anything is left of it.
+     */
+    public static final byte DECREMENT = 4;
+}
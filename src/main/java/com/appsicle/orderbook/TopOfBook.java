@@ -0,0 +1,74 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.BestBidOffer;
+import com.questdb.std.Unsafe;
+
+import java.io.Closeable;
+
+/**
+ * Best bid and offer of an {@link OrderBook} published for other threads in a cache line guarded by a seqlock.
+ */
+public final class TopOfBook implements Closeable {
+    private static final int VERSION_OFFSET = 56;
+    private static final int CACHE_LINE_SIZE = 64;
+
+    private final long mem;
+    private final long block;
+
+    public TopOfBook() {
+        this.mem = Unsafe.malloc(2 * CACHE_LINE_SIZE);
+        this.block = (mem + CACHE_LINE_SIZE - 1) & -CACHE_LINE_SIZE;
+        Unsafe.getUnsafe().setMemory(block, CACHE_LINE_SIZE, (byte) 0);
+    }
+
+    @Override
+    public void close() {
+        Unsafe.free(mem, 2 * CACHE_LINE_SIZE);
+    }
+
+    /**
+     * Copies consistent snapshot of top of book to a {@link BestBidOffer} record. Safe to call from any thread.
+     *
+     * @return sequence of snapshot, it grows by one with every publication.
+     */
+    public long read(long bestBidOffer) {
+        while (true) {
+            long version = Unsafe.getUnsafe().getLongVolatile(null, block + VERSION_OFFSET);
+            if ((version & 1) == 0) {
+                Unsafe.getUnsafe().copyMemory(block, bestBidOffer, VERSION_OFFSET);
+                Unsafe.getUnsafe().loadFence();
+                if (Unsafe.getUnsafe().getLongVolatile(null, block + VERSION_OFFSET) == version) {
+                    return BestBidOffer.getSequence(bestBidOffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Publishes new top of book, unless it is the same as the last one. Must only be called by the thread
+     * that owns the order book.
+     */
+    void publish(long bid, long bidSize, long ask, long askSize, long lastPrice, long lastSize) {
+        if (BestBidOffer.getBid(block) == bid
+                && BestBidOffer.getBidSize(block) == bidSize
+                && BestBidOffer.getAsk(block) == ask
+                && BestBidOffer.getAskSize(block) == askSize
+                && BestBidOffer.getLastPrice(block) == lastPrice
+                && BestBidOffer.getLastSize(block) == lastSize) {
+            return;
+        }
+
+        long version = Unsafe.getUnsafe().getLong(block + VERSION_OFFSET);
+        Unsafe.getUnsafe().putOrderedLong(null, block + VERSION_OFFSET, version + 1);
+        // fields must not be written before version turns odd
+        Unsafe.getUnsafe().storeFence();
+        BestBidOffer.setSequence(block, BestBidOffer.getSequence(block) + 1);
+        BestBidOffer.setBid(block, bid);
+        BestBidOffer.setBidSize(block, bidSize);
+        BestBidOffer.setAsk(block, ask);
+        BestBidOffer.setAskSize(block, askSize);
+        BestBidOffer.setLastPrice(block, lastPrice);
+        BestBidOffer.setLastSize(block, lastSize);
+        Unsafe.getUnsafe().putOrderedLong(null, block + VERSION_OFFSET, version + 2);
+    }
+}
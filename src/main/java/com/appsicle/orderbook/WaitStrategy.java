@@ -0,0 +1,32 @@
+package com.appsicle.orderbook;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What consumer thread does when its queue is empty. Busy spin gives the lowest latency at
+ * the cost of a fully loaded core, yield lets other threads share the core and park trades
+ * wake up latency for CPU time.
+ */
+public enum WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        public void idle() {
+        }
+    },
+    YIELD {
+        @Override
+        public void idle() {
+            Thread.yield();
+        }
+    },
+    PARK {
+        @Override
+        public void idle() {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    };
+
+    private static final long PARK_NANOS = 1_000;
+
+    public abstract void idle();
+}
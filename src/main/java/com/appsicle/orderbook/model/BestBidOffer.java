@@ -0,0 +1,66 @@
+package com.appsicle.orderbook.model;
+
+import com.questdb.std.Unsafe;
+
+/**
+ * Top of book published by {@link com.appsicle.orderbook.TopOfBook}. Price and size of empty side are 0.
+ */
+public final class BestBidOffer {
+    public static final int SIZE = 64;
+
+    public static long getSequence(long bbo) {
+        return Unsafe.getUnsafe().getLong(bbo);
+    }
+
+    public static void setSequence(long bbo, long sequence) {
+        Unsafe.getUnsafe().putLong(bbo, sequence);
+    }
+
+    public static long getBid(long bbo) {
+        return Unsafe.getUnsafe().getLong(bbo + 8);
+    }
+
+    public static void setBid(long bbo, long bid) {
+        Unsafe.getUnsafe().putLong(bbo + 8, bid);
+    }
+
+    public static long getBidSize(long bbo) {
+        return Unsafe.getUnsafe().getLong(bbo + 16);
+    }
+
+    public static void setBidSize(long bbo, long bidSize) {
+        Unsafe.getUnsafe().putLong(bbo + 16, bidSize);
+    }
+
+    public static long getAsk(long bbo) {
+        return Unsafe.getUnsafe().getLong(bbo + 24);
+    }
+
+    public static void setAsk(long bbo, long ask) {
+        Unsafe.getUnsafe().putLong(bbo + 24, ask);
+    }
+
+    public static long getAskSize(long bbo) {
+        return Unsafe.getUnsafe().getLong(bbo + 32);
+    }
+
+    public static void setAskSize(long bbo, long askSize) {
+        Unsafe.getUnsafe().putLong(bbo + 32, askSize);
+    }
+
+    public static long getLastPrice(long bbo) {
+        return Unsafe.getUnsafe().getLong(bbo + 40);
+    }
+
+    public static void setLastPrice(long bbo, long lastPrice) {
+        Unsafe.getUnsafe().putLong(bbo + 40, lastPrice);
+    }
+
+    public static long getLastSize(long bbo) {
+        return Unsafe.getUnsafe().getLong(bbo + 48);
+    }
+
+    public static void setLastSize(long bbo, long lastSize) {
+        Unsafe.getUnsafe().putLong(bbo + 48, lastSize);
+    }
+}
@@ -0,0 +1,48 @@
+package com.appsicle.orderbook.model;
+
+
+import com.questdb.std.Unsafe;
+
+/**
+ * Order book entry of compact order book: only what walking a price point queue reads. Size is stored
+ * in 32 bits, links are order book slot references. Order ID, owner, price and the rest of the order
+ * are kept in details of the slot, apart from the entries.
+ */
+public final class CompactOrderBookEntry {
+    public static final int SIZE = 16;
+
+    public static long getSize(long orderAddress) {
+        return Unsafe.getUnsafe().getInt(orderAddress);
+    }
+
+    public static void setSize(long orderAddress, long size) {
+        Unsafe.getUnsafe().putInt(orderAddress, Math.toIntExact(size));
+    }
+
+    public static long getNext(long orderAddress) {
+        return Unsafe.getUnsafe().getInt(orderAddress + 4) & 0xffffffffL;
+    }
+
+    public static void setNext(long orderAddress, long next) {
+        Unsafe.getUnsafe().putInt(orderAddress + 4, (int) next);
+    }
+
+    public static long getPrev(long orderAddress) {
+        return Unsafe.getUnsafe().getInt(orderAddress + 8) & 0xffffffffL;
+    }
+
+    public static void setPrev(long orderAddress, long prev) {
+        Unsafe.getUnsafe().putInt(orderAddress + 8, (int) prev);
+    }
+
+    /**
+     * @return slot number of the entry, set once when the slot is first allocated.
+     */
+    public static long getSlot(long orderAddress) {
+        return Unsafe.getUnsafe().getInt(orderAddress + 12) & 0xffffffffL;
+    }
+
+    public static void setSlot(long orderAddress, long slot) {
+        Unsafe.getUnsafe().putInt(orderAddress + 12, (int) slot);
+    }
+}
@@ -0,0 +1,60 @@
+package com.appsicle.orderbook.model;
+
+
+import com.questdb.std.Unsafe;
+
+/**
+ * Price point of compact order book, half the size of {@link PricePointEntry}. Size and price are stored
+ * in 32 bits, storing value that does not fit throws {@link ArithmeticException}. Order queue head and tail
+ * are order book slot references rather than addresses, which only order book resolves.
+ */
+public final class CompactPricePointEntry {
+
+    // power of 2 aligned
+    public static final int SIZE = 16;
+
+    public static long getSize(long pricePointEntry) {
+        return Unsafe.getUnsafe().getInt(pricePointEntry);
+    }
+
+    public static void setSize(long pricePointEntry, long size) {
+        Unsafe.getUnsafe().putInt(pricePointEntry, Math.toIntExact(size));
+    }
+
+    /**
+     * @return slot reference of the first order book entry in the queue.
+     */
+    public static long getOrderListHead(long pricePointEntry) {
+        return Unsafe.getUnsafe().getInt(pricePointEntry + 4) & 0xffffffffL;
+    }
+
+    public static void setOrderListHead(long pricePointEntry, long head) {
+        Unsafe.getUnsafe().putInt(pricePointEntry + 4, (int) head);
+    }
+
+    /**
+     * @return slot reference of the last order book entry in the queue.
+     */
+    public static long getOrderListTail(long pricePointEntry) {
+        return Unsafe.getUnsafe().getInt(pricePointEntry + 8) & 0xffffffffL;
+    }
+
+    public static void setOrderListTail(long pricePointEntry, long tail) {
+        Unsafe.getUnsafe().putInt(pricePointEntry + 8, (int) tail);
+    }
+
+    public static long getPrice(long pricePointEntry) {
+        return Unsafe.getUnsafe().getInt(pricePointEntry + 12);
+    }
+
+    public static void setPrice(long pricePointEntry, long price) {
+        Unsafe.getUnsafe().putInt(pricePointEntry + 12, Math.toIntExact(price));
+    }
+
+    /**
+     * @return true if value can be stored as size or price.
+     */
+    public static boolean fits(long value) {
+        return value == (int) value;
+    }
+}
@@ -3,7 +3,12 @@ package com.appsicle.orderbook.model;
 import com.questdb.std.Unsafe;
 
 public final class ExecutionReport {
-    public static final int SIZE = 32;
+    public static final int SIZE = 64;
+    /**
+     * Trade ID of report of size cancelled or decremented by self-trade prevention, or of unfilled remainder
+     * of order that does not rest in the book, rather than traded.
+     */
+    public static final long NO_TRADE = -1;
 
     public static long getOrderID(long er) {
         return Unsafe.getUnsafe().getLong(er);
@@ -28,4 +33,53 @@ public final class ExecutionReport {
     public static void setOrderSide(long er, byte side) {
         Unsafe.getUnsafe().putByte(er + 16, side);
     }
+
+    public static boolean isAggressor(long er) {
+        return Unsafe.getUnsafe().getByte(er + 17) != 0;
+    }
+
+    public static void setAggressor(long er, boolean aggressor) {
+        Unsafe.getUnsafe().putByte(er + 17, (byte) (aggressor ? 1 : 0));
+    }
+
+    public static long getPrice(long er) {
+        return Unsafe.getUnsafe().getLong(er + 24);
+    }
+
+    public static void setPrice(long er, long price) {
+        Unsafe.getUnsafe().putLong(er + 24, price);
+    }
+
+    /**
+     * @return ID of the trade, {@link #NO_TRADE} if size was taken off without a trade.
+     */
+    public static long getTradeID(long er) {
+        return Unsafe.getUnsafe().getLong(er + 32);
+    }
+
+    public static void setTradeID(long er, long tradeID) {
+        Unsafe.getUnsafe().putLong(er + 32, tradeID);
+    }
+
+    /**
+     * @return size of the order remaining after this execution.
+     */
+    public static long getLeavesSize(long er) {
+        return Unsafe.getUnsafe().getLong(er + 40);
+    }
+
+    public static void setLeavesSize(long er, long leavesSize) {
+        Unsafe.getUnsafe().putLong(er + 40, leavesSize);
+    }
+
+    /**
+     * @return owner of the order, see {@link Order#setOwner(long, int)}.
+     */
+    public static int getOwner(long er) {
+        return Unsafe.getUnsafe().getInt(er + 48);
+    }
+
+    public static void setOwner(long er, int owner) {
+        Unsafe.getUnsafe().putInt(er + 48, owner);
+    }
 }
@@ -0,0 +1,80 @@
+package com.appsicle.orderbook.model;
+
+import com.questdb.std.Unsafe;
+
+/**
+ * Fixed length messages of order entry gateway, in native byte order. Requests are {@link #REQUEST_SIZE}
+ * bytes: new order carries {@link Order} record, cancel carries order ID, amend carries order ID, price
+ * and size. Responses are {@link #RESPONSE_SIZE} bytes: new order is answered with its order ID, -1 if it
+ * was rejected, cancel and amend with their result, and every execution of session's orders is sent as
+ * {@link ExecutionReport} record.
+ */
+public final class GatewayMessage {
+    public static final byte NEW_ORDER = 1;
+    public static final byte CANCEL_ORDER = 2;
+    public static final byte AMEND_ORDER = 3;
+    public static final byte EXECUTION_REPORT = 4;
+
+    public static final int REQUEST_SIZE = 48;
+    public static final int RESPONSE_SIZE = 72;
+
+    private static final int ORDER_OFFSET = 4;
+    private static final int EXECUTION_REPORT_OFFSET = 8;
+
+    public static byte getType(long message) {
+        return Unsafe.getUnsafe().getByte(message);
+    }
+
+    public static void setType(long message, byte type) {
+        Unsafe.getUnsafe().putByte(message, type);
+    }
+
+    /**
+     * @return true if cancel or amend has been applied.
+     */
+    public static boolean getResult(long message) {
+        return Unsafe.getUnsafe().getByte(message + 1) != 0;
+    }
+
+    public static void setResult(long message, boolean result) {
+        Unsafe.getUnsafe().putByte(message + 1, (byte) (result ? 1 : 0));
+    }
+
+    /**
+     * @return address of {@link Order} record of new order request.
+     */
+    public static long getOrder(long message) {
+        return message + ORDER_OFFSET;
+    }
+
+    /**
+     * @return address of {@link ExecutionReport} record of execution report response.
+     */
+    public static long getExecutionReport(long message) {
+        return message + EXECUTION_REPORT_OFFSET;
+    }
+
+    public static long getOrderID(long message) {
+        return Unsafe.getUnsafe().getLong(message + 8);
+    }
+
+    public static void setOrderID(long message, long orderID) {
+        Unsafe.getUnsafe().putLong(message + 8, orderID);
+    }
+
+    public static long getPrice(long message) {
+        return Unsafe.getUnsafe().getLong(message + 16);
+    }
+
+    public static void setPrice(long message, long price) {
+        Unsafe.getUnsafe().putLong(message + 16, price);
+    }
+
+    public static long getSize(long message) {
+        return Unsafe.getUnsafe().getLong(message + 24);
+    }
+
+    public static void setSize(long message, long size) {
+        Unsafe.getUnsafe().putLong(message + 24, size);
+    }
+}
@@ -3,8 +3,21 @@ package com.appsicle.orderbook.model;
 
 import com.questdb.std.Unsafe;
 
+/**
+ * Order record. {@link com.appsicle.orderbook.OrderBook#limitOrder(long)} reads side, price and size only.
+ * {@link com.appsicle.orderbook.OrderBook#placeOrder(long)} also reads type and owner, and display size and
+ * stop price for types that use them. Memory from {@code Unsafe.malloc()} is not cleared, so such record has
+ * to be set up with {@link #init(long)} first, which makes it a {@link OrderTypes#LIMIT} order with no owner.
+ */
 public final class Order {
-    public static final int SIZE = 32;
+    public static final int SIZE = 44;
+
+    /**
+     * Zeroes order record: limit order with no owner, other fields are zero until set.
+     */
+    public static void init(long orderAddress) {
+        Unsafe.getUnsafe().setMemory(orderAddress, SIZE, (byte) 0);
+    }
 
     public static byte getSide(long orderAddress) {
         return Unsafe.getUnsafe().getByte(orderAddress);
@@ -18,6 +31,36 @@ public final class Order {
         return Unsafe.getUnsafe().getLong(orderAddress + 9);
     }
 
+    public static int getSymbol(long orderAddress) {
+        return Unsafe.getUnsafe().getInt(orderAddress + 17);
+    }
+
+    public static byte getType(long orderAddress) {
+        return Unsafe.getUnsafe().getByte(orderAddress + 21);
+    }
+
+    /**
+     * @return size displayed in the book at a time, only read for {@link OrderTypes#ICEBERG} orders.
+     */
+    public static long getDisplaySize(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 22);
+    }
+
+    /**
+     * @return trade price that triggers {@link OrderTypes#STOP} and {@link OrderTypes#STOP_LIMIT} orders.
+     */
+    public static long getStopPrice(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 32);
+    }
+
+    /**
+     * @return ID of participant that owns the order, 0 when order has no owner and is not subject to
+     * self-trade prevention.
+     */
+    public static int getOwner(long orderAddress) {
+        return Unsafe.getUnsafe().getInt(orderAddress + 40);
+    }
+
     public static void setSide(long orderAddress, byte side) {
         Unsafe.getUnsafe().putByte(orderAddress, side);
     }
@@ -29,4 +72,27 @@ public final class Order {
     public static void setSize(long orderAddress, long size) {
         Unsafe.getUnsafe().putLong(orderAddress + 9, size);
     }
+
+    public static void setSymbol(long orderAddress, int symbol) {
+        Unsafe.getUnsafe().putInt(orderAddress + 17, symbol);
+    }
+
+    /**
+     * @param type one of {@link OrderTypes}
+     */
+    public static void setType(long orderAddress, byte type) {
+        Unsafe.getUnsafe().putByte(orderAddress + 21, type);
+    }
+
+    public static void setDisplaySize(long orderAddress, long displaySize) {
+        Unsafe.getUnsafe().putLong(orderAddress + 22, displaySize);
+    }
+
+    public static void setStopPrice(long orderAddress, long stopPrice) {
+        Unsafe.getUnsafe().putLong(orderAddress + 32, stopPrice);
+    }
+
+    public static void setOwner(long orderAddress, int owner) {
+        Unsafe.getUnsafe().putInt(orderAddress + 40, owner);
+    }
 }
@@ -4,8 +4,8 @@ package com.appsicle.orderbook.model;
 import com.questdb.std.Unsafe;
 
 public final class OrderBookEntry {
-    // size must be power of 2 aligned
-    public static final int SIZE = 16;
+    public static final int SIZE = 64;
+    public static final int MAX_CHUNKS = 1 << 16;
 
     public static long getSize(long orderAddress) {
         return Unsafe.getUnsafe().getLong(orderAddress);
@@ -22,4 +22,100 @@ public final class OrderBookEntry {
     public static void setNext(long orderAddress, long next) {
         Unsafe.getUnsafe().putLong(orderAddress + 8, next);
     }
+
+    public static long getPrev(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 16);
+    }
+
+    public static void setPrev(long orderAddress, long prev) {
+        Unsafe.getUnsafe().putLong(orderAddress + 16, prev);
+    }
+
+    public static long getPrice(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 24);
+    }
+
+    public static void setPrice(long orderAddress, long price) {
+        Unsafe.getUnsafe().putLong(orderAddress + 24, price);
+    }
+
+    public static long getOrderID(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 32);
+    }
+
+    public static void setOrderID(long orderAddress, long orderID) {
+        Unsafe.getUnsafe().putLong(orderAddress + 32, orderID);
+    }
+
+    public static byte getSide(long orderAddress) {
+        return Unsafe.getUnsafe().getByte(orderAddress + 40);
+    }
+
+    public static void setSide(long orderAddress, byte side) {
+        Unsafe.getUnsafe().putByte(orderAddress + 40, side);
+    }
+
+    /**
+     * @return {@link OrderTypes} of order. Stop and stop limit entries are
+     * pending stop orders, their price is stop price.
+     */
+    public static byte getType(long orderAddress) {
+        return Unsafe.getUnsafe().getByte(orderAddress + 41);
+    }
+
+    public static void setType(long orderAddress, byte type) {
+        Unsafe.getUnsafe().putByte(orderAddress + 41, type);
+    }
+
+    /**
+     * @return index of order book chunk the entry belongs to, set once when the slot is first allocated.
+     */
+    public static int getChunk(long orderAddress) {
+        return Unsafe.getUnsafe().getShort(orderAddress + 42) & 0xffff;
+    }
+
+    public static void setChunk(long orderAddress, int chunk) {
+        Unsafe.getUnsafe().putShort(orderAddress + 42, (short) chunk);
+    }
+
+    public static int getOwner(long orderAddress) {
+        return Unsafe.getUnsafe().getInt(orderAddress + 44);
+    }
+
+    public static void setOwner(long orderAddress, int owner) {
+        Unsafe.getUnsafe().putInt(orderAddress + 44, owner);
+    }
+
+    /**
+     * @return hidden size of iceberg order, which is not counted in price point size.
+     */
+    public static long getReserve(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 48);
+    }
+
+    public static void setReserve(long orderAddress, long reserve) {
+        Unsafe.getUnsafe().putLong(orderAddress + 48, reserve);
+    }
+
+    /**
+     * @return limit price of pending stop limit order, it takes place of reserve.
+     */
+    public static long getStopLimitPrice(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 48);
+    }
+
+    public static void setStopLimitPrice(long orderAddress, long price) {
+        Unsafe.getUnsafe().putLong(orderAddress + 48, price);
+    }
+
+    /**
+     * @return maximum displayed size of order, Long.MAX_VALUE when order is not an iceberg.
+     */
+    public static long getDisplaySize(long orderAddress) {
+        return Unsafe.getUnsafe().getLong(orderAddress + 56);
+    }
+
+    public static void setDisplaySize(long orderAddress, long displaySize) {
+        Unsafe.getUnsafe().putLong(orderAddress + 56, displaySize);
+    }
 }
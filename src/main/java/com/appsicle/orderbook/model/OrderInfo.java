@@ -0,0 +1,128 @@
+package com.appsicle.orderbook.model;
+
+import com.questdb.std.Unsafe;
+
+/**
+ * State of resting or pending stop order, filled in by {@link com.appsicle.orderbook.OrderBook#getOrderInfo(long, long)}.
+ */
+public final class OrderInfo {
+    public static final int SIZE = 72;
+
+    /**
+     * @return limit price, for stop-limit order the price it is matched at once triggered.
+     */
+    public static long getPrice(long info) {
+        return Unsafe.getUnsafe().getLong(info);
+    }
+
+    public static void setPrice(long info, long price) {
+        Unsafe.getUnsafe().putLong(info, price);
+    }
+
+    /**
+     * @return stop price of pending stop order, 0 for other orders.
+     */
+    public static long getStopPrice(long info) {
+        return Unsafe.getUnsafe().getLong(info + 8);
+    }
+
+    public static void setStopPrice(long info, long stopPrice) {
+        Unsafe.getUnsafe().putLong(info + 8, stopPrice);
+    }
+
+    /**
+     * @return remaining displayed size.
+     */
+    public static long getSize(long info) {
+        return Unsafe.getUnsafe().getLong(info + 16);
+    }
+
+    public static void setSize(long info, long size) {
+        Unsafe.getUnsafe().putLong(info + 16, size);
+    }
+
+    /**
+     * @return remaining hidden size of iceberg order, 0 for other orders.
+     */
+    public static long getReserve(long info) {
+        return Unsafe.getUnsafe().getLong(info + 24);
+    }
+
+    public static void setReserve(long info, long reserve) {
+        Unsafe.getUnsafe().putLong(info + 24, reserve);
+    }
+
+    /**
+     * @return size order entered the book with, or was last amended to. Size filled since is original
+     * size less remaining displayed size and reserve.
+     */
+    public static long getOriginalSize(long info) {
+        return Unsafe.getUnsafe().getLong(info + 32);
+    }
+
+    public static void setOriginalSize(long info, long originalSize) {
+        Unsafe.getUnsafe().putLong(info + 32, originalSize);
+    }
+
+    /**
+     * @return time order entered the book, milliseconds since epoch.
+     */
+    public static long getTimestamp(long info) {
+        return Unsafe.getUnsafe().getLong(info + 40);
+    }
+
+    public static void setTimestamp(long info, long timestamp) {
+        Unsafe.getUnsafe().putLong(info + 40, timestamp);
+    }
+
+    /**
+     * @return displayed size of orders queued ahead of this one at the same price, estimated by
+     * {@link com.appsicle.orderbook.OrderBook#getOrderInfo(long, long)}.
+     */
+    public static long getSizeAhead(long info) {
+        return Unsafe.getUnsafe().getLong(info + 48);
+    }
+
+    public static void setSizeAhead(long info, long sizeAhead) {
+        Unsafe.getUnsafe().putLong(info + 48, sizeAhead);
+    }
+
+    /**
+     * @return number of orders queued ahead of this one at the same price, estimated by
+     * {@link com.appsicle.orderbook.OrderBook#getOrderInfo(long, long)}.
+     */
+    public static long getOrdersAhead(long info) {
+        return Unsafe.getUnsafe().getLong(info + 56);
+    }
+
+    public static void setOrdersAhead(long info, long ordersAhead) {
+        Unsafe.getUnsafe().putLong(info + 56, ordersAhead);
+    }
+
+    public static byte getSide(long info) {
+        return Unsafe.getUnsafe().getByte(info + 64);
+    }
+
+    public static void setSide(long info, byte side) {
+        Unsafe.getUnsafe().putByte(info + 64, side);
+    }
+
+    /**
+     * @return one of {@link OrderTypes}: limit, iceberg, or stop and stop-limit while they are pending.
+     */
+    public static byte getType(long info) {
+        return Unsafe.getUnsafe().getByte(info + 65);
+    }
+
+    public static void setType(long info, byte type) {
+        Unsafe.getUnsafe().putByte(info + 65, type);
+    }
+
+    public static int getOwner(long info) {
+        return Unsafe.getUnsafe().getInt(info + 68);
+    }
+
+    public static void setOwner(long info, int owner) {
+        Unsafe.getUnsafe().putInt(info + 68, owner);
+    }
+}
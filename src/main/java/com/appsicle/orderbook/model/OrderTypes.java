@@ -0,0 +1,36 @@
+package com.appsicle.orderbook.model;
+
+public final class OrderTypes {
+    /**
+     * Unfilled remainder rests in the book. Zero, so zeroed order memory is a limit order.
+     */
+    public static final byte LIMIT = 0;
+    /**
+     * Matches at any price, unfilled remainder is dropped. Order price is ignored.
+     */
+    public static final byte MARKET = 1;
+    /**
+     * Matches up to order price, unfilled remainder is dropped.
+     */
+    public static final byte IMMEDIATE_OR_CANCEL = 2;
+    /**
+     * Matches up to order price only if it can be filled in full, otherwise it is dropped without trades.
+     * Under self-trade prevention resting orders of the same owner do not count towards the fill.
+     */
+    public static final byte FILL_OR_KILL = 3;
+    /**
+     * Limit order that shows at most {@link Order#getDisplaySize(long)} in the book, the rest is kept in reserve.
+     * Filled slice is replenished from reserve and queued at the tail of its price point.
+     * Full size is matched when order crosses the book.
+     */
+    public static final byte ICEBERG = 4;
+    /**
+     * Market order held back until a trade at or beyond {@link Order#getStopPrice(long)}: at or above it for BUY,
+     * at or below it for SELL. Order is triggered at once when the last trade has crossed stop price already.
+     */
+    public static final byte STOP = 5;
+    /**
+     * Same as {@link #STOP}, but triggered order is a limit order at order price.
+     */
+    public static final byte STOP_LIMIT = 6;
+}
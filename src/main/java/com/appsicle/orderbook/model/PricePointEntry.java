@@ -3,6 +3,10 @@ package com.appsicle.orderbook.model;
 
 import com.questdb.std.Unsafe;
 
+/**
+ * Aggregate size, order queue and price of price point. Order books created compact use
+ * {@link CompactPricePointEntry} instead.
+ */
 public final class PricePointEntry {
 
     // power of 2 aligned
@@ -16,6 +20,9 @@ public final class PricePointEntry {
         Unsafe.getUnsafe().putLong(pricePointEntry, size);
     }
 
+    /**
+     * @return address of the first order book entry in the queue.
+     */
     public static long getOrderListHead(long pricePointEntry) {
         return Unsafe.getUnsafe().getLong(pricePointEntry + 8);
     }
@@ -24,6 +31,9 @@ public final class PricePointEntry {
         Unsafe.getUnsafe().putLong(pricePointEntry + 8, head);
     }
 
+    /**
+     * @return address of the last order book entry in the queue.
+     */
     public static long getOrderListTail(long pricePointEntry) {
         return Unsafe.getUnsafe().getLong(pricePointEntry + 16);
     }
@@ -31,4 +41,12 @@ public final class PricePointEntry {
     public static void setOrderListTail(long pricePointEntry, long head) {
         Unsafe.getUnsafe().putLong(pricePointEntry + 16, head);
     }
+
+    public static long getPrice(long pricePointEntry) {
+        return Unsafe.getUnsafe().getLong(pricePointEntry + 24);
+    }
+
+    public static void setPrice(long pricePointEntry, long price) {
+        Unsafe.getUnsafe().putLong(pricePointEntry + 24, price);
+    }
 }
@@ -0,0 +1,75 @@
+package com.appsicle.orderbook.model;
+
+import com.questdb.std.Unsafe;
+
+/**
+ * Single record describing both sides of a trade. Emitted instead of a pair of
+ * {@link ExecutionReport} records when order book is created in trade report mode.
+ */
+public final class TradeReport {
+    public static final int SIZE = 64;
+
+    public static long getTradeID(long tr) {
+        return Unsafe.getUnsafe().getLong(tr);
+    }
+
+    public static void setTradeID(long tr, long tradeID) {
+        Unsafe.getUnsafe().putLong(tr, tradeID);
+    }
+
+    public static long getPrice(long tr) {
+        return Unsafe.getUnsafe().getLong(tr + 8);
+    }
+
+    public static void setPrice(long tr, long price) {
+        Unsafe.getUnsafe().putLong(tr + 8, price);
+    }
+
+    public static long getSize(long tr) {
+        return Unsafe.getUnsafe().getLong(tr + 16);
+    }
+
+    public static void setSize(long tr, long size) {
+        Unsafe.getUnsafe().putLong(tr + 16, size);
+    }
+
+    public static long getBuyOrderID(long tr) {
+        return Unsafe.getUnsafe().getLong(tr + 24);
+    }
+
+    public static void setBuyOrderID(long tr, long orderID) {
+        Unsafe.getUnsafe().putLong(tr + 24, orderID);
+    }
+
+    public static long getSellOrderID(long tr) {
+        return Unsafe.getUnsafe().getLong(tr + 32);
+    }
+
+    public static void setSellOrderID(long tr, long orderID) {
+        Unsafe.getUnsafe().putLong(tr + 32, orderID);
+    }
+
+    public static long getBuyLeavesSize(long tr) {
+        return Unsafe.getUnsafe().getLong(tr + 40);
+    }
+
+    public static void setBuyLeavesSize(long tr, long leavesSize) {
+        Unsafe.getUnsafe().putLong(tr + 40, leavesSize);
+    }
+
+    public static long getSellLeavesSize(long tr) {
+        return Unsafe.getUnsafe().getLong(tr + 48);
+    }
+
+    public static void setSellLeavesSize(long tr, long leavesSize) {
+        Unsafe.getUnsafe().putLong(tr + 48, leavesSize);
+    }
+
+    public static byte getAggressorSide(long tr) {
+        return Unsafe.getUnsafe().getByte(tr + 56);
+    }
+
+    public static void setAggressorSide(long tr, byte side) {
+        Unsafe.getUnsafe().putByte(tr + 56, side);
+    }
+}
@@ -0,0 +1,129 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.ExecutionReport;
+import com.appsicle.orderbook.model.OrderSides;
+import com.questdb.std.Unsafe;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatchingEngineTest {
+
+    @Test
+    public void testShardedMatching() {
+        final int shardCount = 3;
+        final int symbolCount = 20;
+        final int ordersPerSymbol = 10_000;
+
+        final long[] executedSize = new long[symbolCount];
+        final Thread[] executionThreads = new Thread[symbolCount];
+
+        long expectedMem = Unsafe.getMemUsed();
+        MatchingEngine engine = new MatchingEngine(
+                shardCount,
+                symbolCount,
+                (symbol, shard) -> new OrderBook(100_00, 200_00, ordersPerSymbol, (ExecutionReportHandler) er -> {
+                    executedSize[symbol] += ExecutionReport.getOrderSize(er);
+                    executionThreads[symbol] = Thread.currentThread();
+                }),
+                256,
+                WaitStrategy.BUSY_SPIN,
+                32
+        );
+        try {
+            engine.start();
+
+            for (int i = 0; i < ordersPerSymbol; i++) {
+                for (int symbol = 0; symbol < symbolCount; symbol++) {
+                    byte side = i % 2 == 0 ? OrderSides.BUY : OrderSides.SELL;
+                    while (!engine.offer(symbol, side, 150_00 + symbol, 1)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        } finally {
+            engine.close();
+        }
+
+        long totalOrders = 0;
+        for (int shard = 0; shard < shardCount; shard++) {
+            totalOrders += engine.getShardOrderCount(shard);
+        }
+        Assert.assertEquals(symbolCount * ordersPerSymbol, totalOrders);
+
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            Assert.assertEquals(ordersPerSymbol, engine.getSymbolOrderCount(symbol));
+            // each trade is reported for both sides
+            Assert.assertEquals(ordersPerSymbol, executedSize[symbol]);
+            Assert.assertEquals("matching-shard-" + engine.getShard(symbol), executionThreads[symbol].getName());
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testExplicitRouting() {
+        long expectedMem = Unsafe.getMemUsed();
+        MatchingEngine engine = new MatchingEngine(
+                2,
+                4,
+                symbol -> symbol < 3 ? 0 : 1,
+                (symbol, shard) -> new OrderBook(100_00, 200_00, 16, (ExecutionReportHandler) er -> {
+                }),
+                16,
+                WaitStrategy.PARK,
+                8
+        );
+        try {
+            engine.start();
+            Assert.assertEquals(0, engine.getShard(0));
+            Assert.assertEquals(0, engine.getShard(2));
+            Assert.assertEquals(1, engine.getShard(3));
+            Assert.assertTrue(engine.offer(3, OrderSides.BUY, 110_00, 10));
+        } finally {
+            engine.close();
+        }
+
+        Assert.assertEquals(0, engine.getShardOrderCount(0));
+        Assert.assertEquals(1, engine.getShardOrderCount(1));
+        Assert.assertEquals(1, engine.getSymbolOrderCount(3));
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testCancelAndAmend() {
+        final long[] executedSize = new long[1];
+        final long[] executedPrice = new long[1];
+
+        long expectedMem = Unsafe.getMemUsed();
+        MatchingEngine engine = new MatchingEngine(
+                1,
+                1,
+                (symbol, shard) -> new OrderBook(100_00, 200_00, 16, (ExecutionReportHandler) er -> {
+                    executedSize[0] += ExecutionReport.getOrderSize(er);
+                    executedPrice[0] = ExecutionReport.getPrice(er);
+                }),
+                16,
+                WaitStrategy.PARK,
+                8
+        );
+        try {
+            engine.start();
+            // order IDs are assigned in queue order: 0, 1
+            Assert.assertTrue(engine.offer(0, OrderSides.SELL, 120_00, 10));
+            Assert.assertTrue(engine.offer(0, OrderSides.SELL, 130_00, 10));
+            Assert.assertTrue(engine.offerCancel(0, 0));
+            Assert.assertTrue(engine.offerAmend(0, 1, 125_00, 5));
+            Assert.assertTrue(engine.offer(0, OrderSides.BUY, 125_00, 10));
+        } finally {
+            engine.close();
+        }
+
+        Assert.assertEquals(5, engine.getSymbolOrderCount(0));
+        // cancelled order at 120_00 does not trade, buy fills amended order only
+        Assert.assertEquals(10, executedSize[0]);
+        Assert.assertEquals(125_00, executedPrice[0]);
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+}
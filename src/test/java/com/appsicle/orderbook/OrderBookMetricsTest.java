@@ -0,0 +1,132 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderSides;
+import com.questdb.std.Unsafe;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class OrderBookMetricsTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = OrderBookMetrics.getBucket(value);
+            Assert.assertTrue(bucket < OrderBookMetrics.BUCKET_COUNT);
+            long low = OrderBookMetrics.getBucketValue(bucket);
+            Assert.assertTrue(low <= value);
+            Assert.assertTrue(value - low <= low / 32);
+            if (bucket + 1 < OrderBookMetrics.BUCKET_COUNT) {
+                Assert.assertTrue(OrderBookMetrics.getBucketValue(bucket + 1) > value);
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBookMetrics metrics = new OrderBookMetrics()) {
+            Assert.assertEquals(0, metrics.getValueAtPercentile(OrderBookMetrics.LIMIT_ORDER_NANOS, 50));
+            for (long value = 1; value <= 1000; value++) {
+                metrics.record(OrderBookMetrics.LIMIT_ORDER_NANOS, value);
+            }
+            Assert.assertEquals(1000, metrics.getCount(OrderBookMetrics.LIMIT_ORDER_NANOS));
+            Assert.assertEquals(1, metrics.getValueAtPercentile(OrderBookMetrics.LIMIT_ORDER_NANOS, 0));
+            assertNear(500, metrics.getValueAtPercentile(OrderBookMetrics.LIMIT_ORDER_NANOS, 50));
+            assertNear(990, metrics.getValueAtPercentile(OrderBookMetrics.LIMIT_ORDER_NANOS, 99));
+            assertNear(1000, metrics.getMaxValue(OrderBookMetrics.LIMIT_ORDER_NANOS));
+            Assert.assertEquals(0, metrics.getCount(OrderBookMetrics.LEVELS_CROSSED));
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testLargestValues() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBookMetrics metrics = new OrderBookMetrics()) {
+            metrics.record(OrderBookMetrics.LIMIT_ORDER_NANOS, Long.MAX_VALUE);
+            Assert.assertEquals(Long.MAX_VALUE, metrics.getValueAtPercentile(OrderBookMetrics.LIMIT_ORDER_NANOS, 100));
+            Assert.assertEquals(Long.MAX_VALUE, metrics.getMaxValue(OrderBookMetrics.LIMIT_ORDER_NANOS));
+
+            metrics.record(OrderBookMetrics.LEVELS_CROSSED, Long.MAX_VALUE / 2);
+            long value = metrics.getMaxValue(OrderBookMetrics.LEVELS_CROSSED);
+            Assert.assertTrue(value > 0);
+            assertNear(Long.MAX_VALUE / 2, value);
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testSnapshotAndReset() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBookMetrics metrics = new OrderBookMetrics(); OrderBookMetrics snapshot = new OrderBookMetrics()) {
+            metrics.increment(OrderBookMetrics.TRADE_COUNT);
+            metrics.add(OrderBookMetrics.EMPTY_TICKS_SKIPPED, 10);
+            metrics.record(OrderBookMetrics.LEVELS_CROSSED, 3);
+
+            metrics.reset();
+            Assert.assertEquals(0, metrics.getCounter(OrderBookMetrics.TRADE_COUNT));
+            Assert.assertEquals(0, metrics.getCount(OrderBookMetrics.LEVELS_CROSSED));
+
+            metrics.increment(OrderBookMetrics.TRADE_COUNT);
+            metrics.record(OrderBookMetrics.LEVELS_CROSSED, 5);
+            metrics.snapshot(snapshot);
+
+            metrics.increment(OrderBookMetrics.TRADE_COUNT);
+            Assert.assertEquals(2, metrics.getCounter(OrderBookMetrics.TRADE_COUNT));
+            Assert.assertEquals(1, snapshot.getCounter(OrderBookMetrics.TRADE_COUNT));
+            Assert.assertEquals(0, snapshot.getCounter(OrderBookMetrics.EMPTY_TICKS_SKIPPED));
+            Assert.assertEquals(1, snapshot.getCount(OrderBookMetrics.LEVELS_CROSSED));
+            Assert.assertEquals(5, snapshot.getMaxValue(OrderBookMetrics.LEVELS_CROSSED));
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testOrderBookMetrics() {
+        Assume.assumeTrue(OrderBookMetrics.ENABLED);
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBookMetrics metrics = new OrderBookMetrics(); OrderBook orderBook = new OrderBook(100, 200, 100, executionReport -> {
+        })) {
+            orderBook.setMetrics(metrics);
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                limitOrder(orderBook, order, OrderSides.SELL, 150, 10);
+                limitOrder(orderBook, order, OrderSides.SELL, 150, 10);
+                limitOrder(orderBook, order, OrderSides.SELL, 160, 10);
+                limitOrder(orderBook, order, OrderSides.SELL, 170, 10);
+                // outside of initial price range
+                limitOrder(orderBook, order, OrderSides.SELL, 5000, 10);
+
+                // fills both orders at 150, skips 9 ticks and fills half of 160
+                limitOrder(orderBook, order, OrderSides.BUY, 165, 25);
+                // rejected orders are timed too
+                limitOrder(orderBook, order, (byte) 7, 165, 25);
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+
+            Assert.assertEquals(7, metrics.getCount(OrderBookMetrics.LIMIT_ORDER_NANOS));
+            Assert.assertEquals(1, metrics.getCount(OrderBookMetrics.EXECUTE_ALL_AT_PRICE_POINT_NANOS));
+            Assert.assertEquals(1, metrics.getCount(OrderBookMetrics.EXECUTE_AT_PRICE_POINT_NANOS));
+            Assert.assertEquals(1, metrics.getCount(OrderBookMetrics.LEVELS_CROSSED));
+            Assert.assertEquals(2, metrics.getMaxValue(OrderBookMetrics.LEVELS_CROSSED));
+            Assert.assertEquals(3, metrics.getCounter(OrderBookMetrics.TRADE_COUNT));
+            Assert.assertEquals(9, metrics.getCounter(OrderBookMetrics.EMPTY_TICKS_SKIPPED));
+            Assert.assertEquals(1, metrics.getCounter(OrderBookMetrics.RESIZE_COUNT));
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private static void limitOrder(OrderBook orderBook, long order, byte side, long price, long size) {
+        Order.setSide(order, side);
+        Order.setPrice(order, price);
+        Order.setSize(order, size);
+        orderBook.limitOrder(order);
+    }
+
+    private static void assertNear(long expected, long actual) {
+        Assert.assertTrue("expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 32);
+    }
+}
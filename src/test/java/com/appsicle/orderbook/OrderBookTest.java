@@ -1,15 +1,24 @@
 package com.appsicle.orderbook;
 
+import com.appsicle.orderbook.model.BestBidOffer;
 import com.appsicle.orderbook.model.ExecutionReport;
 import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderInfo;
 import com.appsicle.orderbook.model.OrderSides;
+import com.appsicle.orderbook.model.OrderTypes;
 import com.appsicle.orderbook.model.PricePointEntry;
+import com.appsicle.orderbook.model.TradeReport;
 import com.questdb.std.Unsafe;
 import com.questdb.std.str.StringSink;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 public class OrderBookTest {
 
     private static final StringSink sink = new StringSink();
@@ -19,14 +28,50 @@ public class OrderBookTest {
         sink.put(ExecutionReport.getOrderSize(executionReport)).put(',');
         byte side = ExecutionReport.getOrderSide(executionReport);
         if (side == OrderSides.BUY) {
-            sink.put("BUY\n");
+            sink.put("BUY");
         } else if (side == OrderSides.SELL) {
-            sink.put("SELL\n");
+            sink.put("SELL");
         } else {
-            sink.put("-\n");
+            sink.put("-");
+        }
+        if (ExecutionReport.getTradeID(executionReport) == ExecutionReport.NO_TRADE) {
+            sink.put(",NO_TRADE,").put(ExecutionReport.getLeavesSize(executionReport));
+        }
+        sink.put('\n');
+    }
+
+    private static void captureExecutionReports(long executionReports, long count) {
+        sink.put("batch ").put(count).put('\n');
+        for (long i = 0; i < count; i++) {
+            captureExecutionReport(executionReports + i * ExecutionReport.SIZE);
         }
     }
 
+    private static void captureExecutionReportDetails(long executionReport) {
+        sink.put(ExecutionReport.getTradeID(executionReport)).put(',');
+        sink.put(ExecutionReport.getOrderID(executionReport)).put(',');
+        sink.put(ExecutionReport.getPrice(executionReport)).put(',');
+        sink.put(ExecutionReport.getOrderSize(executionReport)).put(',');
+        sink.put(ExecutionReport.getLeavesSize(executionReport)).put(',');
+        sink.put(ExecutionReport.isAggressor(executionReport) ? "A\n" : "P\n");
+    }
+
+    private static void captureTradeReport(long tradeReport) {
+        sink.put(TradeReport.getTradeID(tradeReport)).put(',');
+        sink.put(TradeReport.getPrice(tradeReport)).put(',');
+        sink.put(TradeReport.getSize(tradeReport)).put(',');
+        sink.put(TradeReport.getBuyOrderID(tradeReport)).put(',');
+        sink.put(TradeReport.getBuyLeavesSize(tradeReport)).put(',');
+        sink.put(TradeReport.getSellOrderID(tradeReport)).put(',');
+        sink.put(TradeReport.getSellLeavesSize(tradeReport)).put(',');
+        sink.put(TradeReport.getAggressorSide(tradeReport) == OrderSides.BUY ? "BUY\n" : "SELL\n");
+    }
+
+    private static void captureDepthUpdate(long price, byte side, long size, long level) {
+        sink.put(side == OrderSides.BUY ? "BUY," : "SELL,");
+        sink.put(level).put(',').put(price).put(',').put(size).put('\n');
+    }
+
     private static void printOrderBook(long level, long bid, long bidSize, long ask, long askSize) {
         sink.put(level).put(',').put(bid).put(',').put(bidSize).put(',').put(ask).put(',').put(askSize).put('\n');
     }
@@ -721,5 +766,1439 @@ public class OrderBookTest {
         Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
     }
 
+    @Test
+    public void testCancelOrder() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 100);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+
+                Order.setSize(order, 200);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+
+                Order.setSize(order, 300);
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+
+                Order.setSize(order, 50);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(3, orderBook.limitOrder(order));
+
+                // cancel from the middle of the queue
+                Assert.assertTrue(orderBook.cancelOrder(1));
+                Assert.assertFalse(orderBook.cancelOrder(1));
+                // -1 marks empty slot of order index
+                Assert.assertFalse(orderBook.cancelOrder(-1));
+                Assert.assertFalse(orderBook.amendOrder(-1, 110_12, 10));
+                Assert.assertFalse(orderBook.cancelOrder(100));
+
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,11012,400,0,0\n" +
+                        "1,11010,50,0,0\n", sink.toString());
+
+                // cancel entire level
+                Assert.assertTrue(orderBook.cancelOrder(3));
+                Assert.assertEquals(1, orderBook.getBidLevelCount());
+
+                sink.clear();
+                Order.setSize(order, 350);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_00);
+                Assert.assertEquals(4, orderBook.limitOrder(order));
+                Assert.assertEquals("0,100,BUY\n" +
+                        "4,100,SELL\n" +
+                        "2,250,BUY\n" +
+                        "4,250,SELL\n", sink.toString());
+
+                // filled order cannot be cancelled
+                Assert.assertFalse(orderBook.cancelOrder(0));
+                Assert.assertTrue(orderBook.cancelOrder(2));
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+                Assert.assertEquals(0, orderBook.getAskLevelCount());
+
+                sink.clear();
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testCancelTailAndAppend() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 10);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+
+                Assert.assertTrue(orderBook.cancelOrder(2));
+                Assert.assertEquals(3, orderBook.limitOrder(order));
+                Assert.assertTrue(orderBook.cancelOrder(0));
+
+                Order.setSize(order, 20);
+                Order.setSide(order, OrderSides.BUY);
+                Assert.assertEquals(4, orderBook.limitOrder(order));
+                Assert.assertEquals("1,10,SELL\n" +
+                        "4,10,BUY\n" +
+                        "3,10,SELL\n" +
+                        "4,10,BUY\n", sink.toString());
+                Assert.assertEquals(0, orderBook.getAskLevelCount());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testSlotRecycling() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 4, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 10);
+
+                // session volume well above slab capacity, slots are recycled on cancel
+                long orderID = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    Order.setSide(order, OrderSides.BUY);
+                    Order.setPrice(order, 110_00 + i % 3);
+                    Assert.assertEquals(orderID, orderBook.limitOrder(order));
+                    if (orderID > 1) {
+                        Assert.assertTrue(orderBook.cancelOrder(orderID - 2));
+                    }
+                    orderID++;
+                }
+                Assert.assertTrue(orderBook.cancelOrder(orderID - 2));
+                Assert.assertTrue(orderBook.cancelOrder(orderID - 1));
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+
+                // and on fill
+                for (int i = 0; i < 10_000; i++) {
+                    Order.setSide(order, OrderSides.BUY);
+                    Order.setPrice(order, 110_00);
+                    Assert.assertEquals(orderID++, orderBook.limitOrder(order));
+                    Assert.assertEquals(orderID++, orderBook.limitOrder(order));
+                    Order.setSize(order, 20);
+                    Order.setSide(order, OrderSides.SELL);
+                    Assert.assertEquals(orderID++, orderBook.limitOrder(order));
+                    Order.setSize(order, 10);
+                }
+
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+                Assert.assertEquals(0, orderBook.getAskLevelCount());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testAmendOrder() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 100);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+
+                // size down keeps priority
+                Assert.assertTrue(orderBook.amendOrder(0, 110_12, 40));
+                // size up loses priority
+                Assert.assertTrue(orderBook.amendOrder(1, 110_12, 120));
+                // price change moves order to the tail of new price point
+                Assert.assertTrue(orderBook.amendOrder(2, 110_14, 100));
+                Assert.assertFalse(orderBook.amendOrder(5, 110_14, 100));
+
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,0,0,11012,160\n" +
+                        "1,0,0,11014,100\n", sink.toString());
+                Assert.assertEquals(2, orderBook.getAskLevelCount());
+
+                sink.clear();
+                Order.setSize(order, 300);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_14);
+                Assert.assertEquals(3, orderBook.limitOrder(order));
+                Assert.assertEquals("0,40,SELL\n" +
+                        "3,40,BUY\n" +
+                        "1,120,SELL\n" +
+                        "3,120,BUY\n" +
+                        "2,100,SELL\n" +
+                        "3,100,BUY\n", sink.toString());
+
+                // remainder of 3 is resting bid, amend to zero cancels it
+                Assert.assertEquals(1, orderBook.getBidLevelCount());
+                Assert.assertTrue(orderBook.amendOrder(3, 110_14, 0));
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+                Assert.assertFalse(orderBook.cancelOrder(3));
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testAmendOrderCrossesBook() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 100);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+
+                Order.setSize(order, 150);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+
+                Assert.assertTrue(orderBook.amendOrder(1, 110_12, 150));
+                Assert.assertEquals("0,100,SELL\n" +
+                        "1,100,BUY\n", sink.toString());
+
+                sink.clear();
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,11012,50,0,0\n", sink.toString());
+
+                // amend out of price range
+                Assert.assertTrue(orderBook.amendOrder(1, 90_00, 50));
+                sink.clear();
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,9000,50,0,0\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testSparseLevels() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(0, 1000_000, 1000_000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 10);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 1);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Order.setPrice(order, 64);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+                Order.setPrice(order, 5000);
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 999_999);
+                Assert.assertEquals(3, orderBook.limitOrder(order));
+                Order.setPrice(order, 400_000);
+                Assert.assertEquals(4, orderBook.limitOrder(order));
+                Order.setPrice(order, 1200_000);
+                Assert.assertEquals(5, orderBook.limitOrder(order));
+
+                Assert.assertEquals(64, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(1)));
+                Assert.assertEquals(1, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(2)));
+                Assert.assertEquals(999_999, orderBook.getPriceAtEntry(orderBook.getEntryAtAskLevel(1)));
+                Assert.assertEquals(1200_000, orderBook.getPriceAtEntry(orderBook.getEntryAtAskLevel(2)));
+
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,5000,10,400000,10\n" +
+                        "1,64,10,999999,10\n" +
+                        "2,1,10,1200000,10\n", sink.toString());
+
+                // sweep skips empty price points on both sides
+                sink.clear();
+                Order.setSize(order, 25);
+                Order.setPrice(order, 0);
+                Assert.assertEquals(6, orderBook.limitOrder(order));
+                Assert.assertEquals("2,10,BUY\n" +
+                        "6,10,SELL\n" +
+                        "1,10,BUY\n" +
+                        "6,10,SELL\n" +
+                        "0,5,BUY\n" +
+                        "6,5,SELL\n", sink.toString());
+
+                Assert.assertTrue(orderBook.cancelOrder(4));
+                Assert.assertEquals(999_999, orderBook.getPriceAtEntry(orderBook.getEntryAtAskLevel(0)));
+
+                sink.clear();
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,1,5,999999,10\n" +
+                        "1,0,0,1200000,10\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testOutlierPrice() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSize(order, 10);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.placeOrder(order));
+
+                // price 10x away from the market costs a page rather than a ladder copy
+                long memBefore = Unsafe.getMemUsed();
+                Order.setPrice(order, 1100_12);
+                Assert.assertEquals(1, orderBook.placeOrder(order));
+                Assert.assertTrue(Unsafe.getMemUsed() - memBefore < 64 * 1024);
+
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, -5_00);
+                Assert.assertEquals(2, orderBook.placeOrder(order));
+
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,-500,10,11012,10\n" +
+                        "1,0,0,110012,10\n", sink.toString());
+
+                // emptied pages are released
+                Assert.assertTrue(orderBook.cancelOrder(1));
+                Assert.assertTrue(orderBook.cancelOrder(2));
+                Assert.assertTrue(Unsafe.getMemUsed() - memBefore < 64 * 1024);
+
+                sink.clear();
+                Order.setSize(order, 20);
+                Order.setPrice(order, 2000_00);
+                Assert.assertEquals(3, orderBook.placeOrder(order));
+                Assert.assertEquals("0,10,SELL\n" +
+                        "3,10,BUY\n", sink.toString());
+
+                sink.clear();
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,200000,10,0,0\n", sink.toString());
+
+                // price directory does not grow to cover extreme prices
+                memBefore = Unsafe.getMemUsed();
+                Order.setPrice(order, Long.MAX_VALUE - 1);
+                Assert.assertEquals(-1, orderBook.placeOrder(order));
+                Order.setPrice(order, Long.MIN_VALUE + 1);
+                Assert.assertEquals(-1, orderBook.placeOrder(order));
+                Order.setType(order, OrderTypes.STOP_LIMIT);
+                Order.setPrice(order, 2000_00);
+                Order.setStopPrice(order, Long.MAX_VALUE / 2);
+                Assert.assertEquals(-1, orderBook.placeOrder(order));
+                Assert.assertFalse(orderBook.amendOrder(3, Long.MAX_VALUE - 1, 10));
+                Assert.assertEquals(memBefore, Unsafe.getMemUsed());
+                Order.setType(order, OrderTypes.LIMIT);
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testBatchedExecutionReports() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureExecutionReports, 5)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 10);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Order.setPrice(order, 110_13);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+                Order.setPrice(order, 110_14);
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+                Assert.assertEquals("", sink.toString());
+
+                Order.setSize(order, 25);
+                Order.setSide(order, OrderSides.BUY);
+                Assert.assertEquals(3, orderBook.limitOrder(order));
+                Assert.assertEquals("batch 5\n" +
+                        "0,10,SELL\n" +
+                        "3,10,BUY\n" +
+                        "1,10,SELL\n" +
+                        "3,10,BUY\n" +
+                        "2,5,SELL\n" +
+                        "batch 1\n" +
+                        "3,5,BUY\n", sink.toString());
+
+                sink.clear();
+                Order.setSize(order, 10);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(4, orderBook.limitOrder(order));
+                Assert.assertTrue(orderBook.amendOrder(4, 110_14, 10));
+                Assert.assertEquals("batch 2\n" +
+                        "2,5,SELL\n" +
+                        "4,5,BUY\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testExecutionReportDetails() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureExecutionReportDetails)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 100);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Order.setSize(order, 50);
+                Order.setPrice(order, 110_13);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+
+                Order.setSize(order, 170);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_13);
+                Assert.assertEquals(3, orderBook.limitOrder(order));
+
+                Assert.assertEquals("0,0,11012,100,0,P\n" +
+                        "0,3,11012,100,70,A\n" +
+                        "1,1,11013,50,0,P\n" +
+                        "1,3,11013,50,20,A\n" +
+                        "2,2,11013,20,30,P\n" +
+                        "2,3,11013,20,0,A\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testTradeReports() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000_000, OrderBookTest::captureTradeReport, true)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSize(order, 100);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Order.setPrice(order, 110_11);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+
+                Order.setSize(order, 150);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+
+                Assert.assertEquals("0,11012,100,0,0,2,50,SELL\n" +
+                        "1,11011,50,1,50,2,0,SELL\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+
+    @Test
+    public void testDepthUpdates() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, executionReport -> {
+        })) {
+            orderBook.setDepthListener(OrderBookTest::captureDepthUpdate);
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 100);
+                Order.setPrice(order, 110_10);
+                orderBook.limitOrder(order);
+                Order.setPrice(order, 110_12);
+                orderBook.limitOrder(order);
+                // second page of the price ladder
+                Order.setPrice(order, 120_00);
+                orderBook.limitOrder(order);
+                Order.setPrice(order, 110_10);
+                orderBook.limitOrder(order);
+
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 130_00);
+                orderBook.limitOrder(order);
+                Assert.assertEquals("BUY,0,11010,100\n" +
+                        "BUY,0,11012,100\n" +
+                        "BUY,0,12000,100\n" +
+                        "BUY,2,11010,200\n" +
+                        "SELL,0,13000,100\n", sink.toString());
+
+                // sweep removes two levels and partially fills the third one
+                sink.clear();
+                Order.setSize(order, 250);
+                Order.setPrice(order, 110_00);
+                orderBook.limitOrder(order);
+                Assert.assertEquals("BUY,0,12000,0\n" +
+                        "BUY,0,11012,0\n" +
+                        "BUY,0,11010,150\n", sink.toString());
+
+                sink.clear();
+                Assert.assertTrue(orderBook.amendOrder(0, 110_10, 20));
+                Assert.assertTrue(orderBook.amendOrder(4, 140_00, 100));
+                Assert.assertTrue(orderBook.cancelOrder(3));
+                Assert.assertEquals("BUY,0,11010,120\n" +
+                        "SELL,0,13000,0\n" +
+                        "SELL,0,14000,100\n" +
+                        "BUY,0,11010,20\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testDeepLevelAccess() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                // levels on every other tick, twice as deep as depth cache
+                Order.setSize(order, 10);
+                Order.setSide(order, OrderSides.BUY);
+                for (int i = 0; i < 2 * OrderBook.CACHED_LEVELS; i++) {
+                    Order.setPrice(order, 110_00 + 2 * i);
+                    orderBook.limitOrder(order);
+                }
+                assertBidLevels(orderBook, 110_62, 110_00);
+
+                // fill of top level and cancel inside of the cache pull deeper levels into it
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_62);
+                orderBook.limitOrder(order);
+                Assert.assertTrue(orderBook.cancelOrder(25));
+                Assert.assertEquals(110_48, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(5)));
+                Assert.assertEquals(110_28, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(OrderBook.CACHED_LEVELS - 1)));
+                Assert.assertEquals(110_26, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(OrderBook.CACHED_LEVELS)));
+
+                // new level in the middle of the cache pushes one out of it
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_50);
+                orderBook.limitOrder(order);
+                Order.setPrice(order, 110_52);
+                orderBook.limitOrder(order);
+                Assert.assertEquals(110_60, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(0)));
+                Assert.assertEquals(110_50, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(5)));
+                Assert.assertEquals(110_00, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(2 * OrderBook.CACHED_LEVELS - 2)));
+                Assert.assertEquals(-1, orderBook.getEntryAtBidLevel(2 * OrderBook.CACHED_LEVELS - 1));
+
+                // sweep through the whole cache
+                Order.setSide(order, OrderSides.SELL);
+                Order.setSize(order, 10 * (OrderBook.CACHED_LEVELS + 2));
+                Order.setPrice(order, 110_00);
+                orderBook.limitOrder(order);
+                Assert.assertEquals(2 * OrderBook.CACHED_LEVELS - 18, orderBook.getBidLevelCount());
+                assertBidLevels(orderBook, 110_26, 110_00);
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testLimitOrderReadsSidePriceAndSize() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            orderBook.setSelfTradePrevention(SelfTradePrevention.CANCEL_AGGRESSOR);
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                // type, owner, display size and stop price are left as garbage
+                Unsafe.getUnsafe().setMemory(order, Order.SIZE, (byte) 0x7f);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                Order.setSize(order, 100);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Assert.assertEquals(1, orderBook.getAskLevelCount());
+
+                // limit orders have no owner, so the same record trades with itself
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 40);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+                Assert.assertEquals("0,40,SELL\n" +
+                        "1,40,BUY\n", sink.toString());
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testOrderTypes() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setSize(order, 100);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(0, orderBook.placeOrder(order));
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(1, orderBook.placeOrder(order));
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 50);
+                Order.setPrice(order, 110_00);
+                Assert.assertEquals(2, orderBook.placeOrder(order));
+
+                // remainder of immediate-or-cancel order does not rest in the book, it is cancelled
+                Order.setType(order, OrderTypes.IMMEDIATE_OR_CANCEL);
+                Order.setSize(order, 150);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(3, orderBook.placeOrder(order));
+                Assert.assertEquals("0,100,SELL\n" +
+                        "3,100,BUY\n" +
+                        "3,50,BUY,NO_TRADE,0\n", sink.toString());
+                Assert.assertEquals(1, orderBook.getBidLevelCount());
+                Assert.assertEquals(1, orderBook.getAskLevelCount());
+
+                // fill-or-kill order that can not be filled in full does not trade
+                sink.clear();
+                Order.setType(order, OrderTypes.FILL_OR_KILL);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(4, orderBook.placeOrder(order));
+                Assert.assertEquals("4,150,BUY,NO_TRADE,0\n", sink.toString());
+                sink.clear();
+                Order.setSize(order, 60);
+                Assert.assertEquals(5, orderBook.placeOrder(order));
+                Assert.assertEquals("1,60,SELL\n" +
+                        "5,60,BUY\n", sink.toString());
+
+                // market order ignores price, remainder is dropped
+                sink.clear();
+                Order.setType(order, OrderTypes.MARKET);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setSize(order, 80);
+                Order.setPrice(order, 200_00);
+                Assert.assertEquals(6, orderBook.placeOrder(order));
+                Assert.assertEquals("2,50,BUY\n" +
+                        "6,50,SELL\n" +
+                        "6,30,SELL,NO_TRADE,0\n", sink.toString());
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+
+                sink.clear();
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,0,0,11012,40\n", sink.toString());
+
+                Order.setType(order, (byte) 9);
+                Assert.assertEquals(-1, orderBook.placeOrder(order));
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testCancelledRemainderReport() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReportDetails)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setSize(order, 30);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(0, orderBook.placeOrder(order));
+
+                Order.setType(order, OrderTypes.IMMEDIATE_OR_CANCEL);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 100);
+                Order.setPrice(order, 110_12);
+                Assert.assertEquals(1, orderBook.placeOrder(order));
+                Assert.assertEquals("0,0,11010,30,0,P\n" +
+                        "0,1,11010,30,70,A\n" +
+                        "-1,1,11012,70,0,A\n", sink.toString());
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testExtremeImmediatePrices() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSize(order, 10);
+                // orders that do not rest must not reach empty side sentinel
+                for (byte type : new byte[]{OrderTypes.IMMEDIATE_OR_CANCEL, OrderTypes.FILL_OR_KILL}) {
+                    Order.setType(order, type);
+                    Order.setSide(order, OrderSides.BUY);
+                    Order.setPrice(order, Long.MAX_VALUE);
+                    Assert.assertTrue(orderBook.placeOrder(order) > -1);
+                    Order.setSide(order, OrderSides.SELL);
+                    Order.setPrice(order, Long.MIN_VALUE);
+                    Assert.assertTrue(orderBook.placeOrder(order) > -1);
+                }
+                Assert.assertEquals("0,10,BUY,NO_TRADE,0\n" +
+                        "1,10,SELL,NO_TRADE,0\n" +
+                        "2,10,BUY,NO_TRADE,0\n" +
+                        "3,10,SELL,NO_TRADE,0\n", sink.toString());
+
+                sink.clear();
+                Order.setType(order, OrderTypes.LIMIT);
+                Order.setPrice(order, 110_10);
+                Assert.assertEquals(4, orderBook.placeOrder(order));
+                Order.setType(order, OrderTypes.FILL_OR_KILL);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 15);
+                Order.setPrice(order, Long.MAX_VALUE);
+                Assert.assertEquals(5, orderBook.placeOrder(order));
+                Assert.assertEquals("5,15,BUY,NO_TRADE,0\n", sink.toString());
+                sink.clear();
+                Order.setType(order, OrderTypes.IMMEDIATE_OR_CANCEL);
+                Assert.assertEquals(6, orderBook.placeOrder(order));
+                Assert.assertEquals("4,10,SELL\n" +
+                        "6,10,BUY\n" +
+                        "6,5,BUY,NO_TRADE,0\n", sink.toString());
+                Assert.assertEquals(0, orderBook.getBidLevelCount() + orderBook.getAskLevelCount());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testIcebergOrder() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            Order.setType(order, OrderTypes.ICEBERG);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                Order.setSize(order, 100);
+                Order.setDisplaySize(order, 30);
+                Assert.assertEquals(0, orderBook.placeOrder(order));
+                Order.setType(order, OrderTypes.LIMIT);
+                Order.setSize(order, 20);
+                Assert.assertEquals(1, orderBook.placeOrder(order));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,0,0,11010,50\n", sink.toString());
+
+                // filled slice is replenished and queued behind order 1
+                sink.clear();
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 40);
+                Assert.assertEquals(2, orderBook.placeOrder(order));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,30,SELL\n" +
+                        "2,30,BUY\n" +
+                        "1,10,SELL\n" +
+                        "2,10,BUY\n" +
+                        "0,0,0,11010,40\n", sink.toString());
+
+                // reserve is drained at the same price before order rests
+                sink.clear();
+                Order.setSize(order, 100);
+                Assert.assertEquals(3, orderBook.placeOrder(order));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("1,10,SELL\n" +
+                        "3,10,BUY\n" +
+                        "0,30,SELL\n" +
+                        "3,30,BUY\n" +
+                        "0,30,SELL\n" +
+                        "3,30,BUY\n" +
+                        "0,10,SELL\n" +
+                        "3,10,BUY\n" +
+                        "0,11010,20,0,0\n", sink.toString());
+
+                // iceberg order crosses with full size and rests with display size
+                sink.clear();
+                Order.setType(order, OrderTypes.ICEBERG);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_00);
+                Order.setSize(order, 50);
+                Order.setDisplaySize(order, 10);
+                Assert.assertEquals(4, orderBook.placeOrder(order));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("3,20,BUY\n" +
+                        "4,20,SELL\n" +
+                        "0,0,0,11000,10\n", sink.toString());
+
+                // size reduction takes reserve first
+                sink.clear();
+                Assert.assertTrue(orderBook.amendOrder(4, 110_00, 15));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertTrue(orderBook.amendOrder(4, 110_00, 5));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,0,0,11000,10\n" +
+                        "0,0,0,11000,5\n", sink.toString());
+
+                Order.setDisplaySize(order, 0);
+                Assert.assertEquals(-1, orderBook.placeOrder(order));
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testStopOrders() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSize(order, 100);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                orderBook.placeOrder(order);
+                Order.setPrice(order, 110_20);
+                orderBook.placeOrder(order);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 110_00);
+                orderBook.placeOrder(order);
+
+                // stops are pending until trade reaches their stop price
+                Order.setType(order, OrderTypes.STOP);
+                Order.setStopPrice(order, 110_10);
+                Order.setSize(order, 50);
+                Assert.assertEquals(3, orderBook.placeOrder(order));
+                Order.setType(order, OrderTypes.STOP_LIMIT);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setStopPrice(order, 110_00);
+                Order.setPrice(order, 109_90);
+                Order.setSize(order, 30);
+                Assert.assertEquals(4, orderBook.placeOrder(order));
+                Order.setType(order, OrderTypes.STOP);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setStopPrice(order, 120_00);
+                Assert.assertEquals(5, orderBook.placeOrder(order));
+                Assert.assertFalse(orderBook.amendOrder(5, 110_00, 10));
+                Assert.assertTrue(orderBook.cancelOrder(5));
+                Assert.assertFalse(orderBook.cancelOrder(5));
+                Assert.assertEquals("", sink.toString());
+
+                // trade at stop price releases buy stop as market order
+                Order.setType(order, OrderTypes.LIMIT);
+                Order.setPrice(order, 110_10);
+                Order.setSize(order, 20);
+                Assert.assertEquals(6, orderBook.placeOrder(order));
+                Assert.assertEquals("0,20,SELL\n" +
+                        "6,20,BUY\n" +
+                        "0,50,SELL\n" +
+                        "3,50,BUY\n", sink.toString());
+
+                // sell stop limit order rests at its limit price when there is nothing to match
+                sink.clear();
+                Order.setType(order, OrderTypes.MARKET);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setSize(order, 100);
+                Assert.assertEquals(7, orderBook.placeOrder(order));
+                Assert.assertEquals("2,100,BUY\n" +
+                        "7,100,SELL\n", sink.toString());
+
+                // stop price already reached by the last trade
+                sink.clear();
+                Order.setType(order, OrderTypes.STOP);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setStopPrice(order, 109_00);
+                Order.setSize(order, 10);
+                Assert.assertEquals(8, orderBook.placeOrder(order));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("4,10,SELL\n" +
+                        "8,10,BUY\n" +
+                        "0,0,0,10990,20\n" +
+                        "1,0,0,11010,30\n" +
+                        "2,0,0,11020,100\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testSelfTradePrevention() {
+        assertSelfTradePrevention(SelfTradePrevention.NONE, "0,10,SELL\n" +
+                "3,10,BUY\n" +
+                "1,5,SELL\n" +
+                "3,5,BUY\n" +
+                "0,0,0,11010,5\n" +
+                "1,0,0,11020,10\n");
+        assertSelfTradePrevention(SelfTradePrevention.CANCEL_RESTING, "0,10,SELL,NO_TRADE,0\n" +
+                "1,10,SELL\n" +
+                "3,10,BUY\n" +
+                "2,10,SELL,NO_TRADE,0\n" +
+                "0,11020,5,0,0\n");
+        assertSelfTradePrevention(SelfTradePrevention.CANCEL_AGGRESSOR, "3,15,BUY,NO_TRADE,0\n" +
+                "0,0,0,11010,20\n" +
+                "1,0,0,11020,10\n");
+        assertSelfTradePrevention(SelfTradePrevention.CANCEL_BOTH, "3,15,BUY,NO_TRADE,0\n" +
+                "0,10,SELL,NO_TRADE,0\n" +
+                "0,0,0,11010,10\n" +
+                "1,0,0,11020,10\n");
+        assertSelfTradePrevention(SelfTradePrevention.DECREMENT, "0,10,SELL,NO_TRADE,0\n" +
+                "3,10,BUY,NO_TRADE,5\n" +
+                "1,5,SELL\n" +
+                "3,5,BUY\n" +
+                "0,0,0,11010,5\n" +
+                "1,0,0,11020,10\n");
+    }
+
+    @Test
+    public void testFillOrKillSelfTradePrevention() {
+        // 15 of 20 at or below 110_20 belongs to other owner
+        assertFillOrKillSelfTradePrevention(SelfTradePrevention.NONE, 20, "0,10,SELL\n" +
+                "3,10,BUY\n" +
+                "1,10,SELL\n" +
+                "3,10,BUY\n");
+        assertFillOrKillSelfTradePrevention(SelfTradePrevention.CANCEL_RESTING, 20, "3,20,BUY,NO_TRADE,0\n");
+        assertFillOrKillSelfTradePrevention(SelfTradePrevention.CANCEL_RESTING, 15, "0,10,SELL\n" +
+                "3,10,BUY\n" +
+                "1,10,SELL,NO_TRADE,0\n" +
+                "2,5,SELL\n" +
+                "3,5,BUY\n");
+        assertFillOrKillSelfTradePrevention(SelfTradePrevention.CANCEL_AGGRESSOR, 15, "3,15,BUY,NO_TRADE,0\n");
+        assertFillOrKillSelfTradePrevention(SelfTradePrevention.CANCEL_AGGRESSOR, 10, "0,10,SELL\n" +
+                "3,10,BUY\n");
+        assertFillOrKillSelfTradePrevention(SelfTradePrevention.DECREMENT, 15, "3,15,BUY,NO_TRADE,0\n");
+    }
+
+    private static void assertFillOrKillSelfTradePrevention(byte selfTradePrevention, long size, String expected) {
+        sink.clear();
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            orderBook.setSelfTradePrevention(selfTradePrevention);
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setSize(order, 10);
+                Order.setPrice(order, 110_10);
+                Order.setOwner(order, 2);
+                orderBook.placeOrder(order);
+                Order.setOwner(order, 1);
+                orderBook.placeOrder(order);
+                Order.setPrice(order, 110_20);
+                Order.setSize(order, 5);
+                Order.setOwner(order, 2);
+                orderBook.placeOrder(order);
+
+                Order.setType(order, OrderTypes.FILL_OR_KILL);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, size);
+                Order.setOwner(order, 1);
+                Assert.assertEquals(3, orderBook.placeOrder(order));
+                Assert.assertEquals(expected, sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private static void assertSelfTradePrevention(byte selfTradePrevention, String expected) {
+        sink.clear();
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            orderBook.setSelfTradePrevention(selfTradePrevention);
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setSize(order, 10);
+                Order.setPrice(order, 110_10);
+                Order.setOwner(order, 1);
+                orderBook.placeOrder(order);
+                Order.setOwner(order, 2);
+                orderBook.placeOrder(order);
+                Order.setPrice(order, 110_20);
+                Order.setOwner(order, 1);
+                orderBook.placeOrder(order);
+
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 15);
+                orderBook.placeOrder(order);
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals(expected, sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testAllocation() {
+        assertAllocation(Allocation.FIFO, "0,7,SELL\n" +
+                "3,7,BUY\n" +
+                "0,0,0,11010,93\n");
+        // 0.7, 2.1 and 4.2 lots rounded down at cumulative size
+        assertAllocation(Allocation.PRO_RATA, "1,2,SELL\n" +
+                "3,2,BUY\n" +
+                "2,5,SELL\n" +
+                "3,5,BUY\n" +
+                "0,0,0,11010,93\n");
+        // 40% of 7 rounded down to lead market maker, the rest FIFO
+        assertAllocation(Allocation.fifoWithLeadMarketMaker(3, 40), "2,2,SELL\n" +
+                "3,2,BUY\n" +
+                "0,5,SELL\n" +
+                "3,5,BUY\n" +
+                "0,0,0,11010,93\n");
+    }
+
+    private static void assertAllocation(Allocation allocation, String expected) {
+        sink.clear();
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            orderBook.setAllocation(allocation);
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                for (int owner = 1; owner <= 3; owner++) {
+                    Order.setSize(order, owner == 1 ? 10 : owner == 2 ? 30 : 60);
+                    Order.setOwner(order, owner);
+                    orderBook.placeOrder(order);
+                }
+
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 7);
+                Order.setOwner(order, 0);
+                orderBook.placeOrder(order);
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals(expected, sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testOrderInfo() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            long info = Unsafe.malloc(OrderInfo.SIZE);
+            try {
+                long start = System.currentTimeMillis();
+                Order.setType(order, OrderTypes.LIMIT);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                Order.setSize(order, 100);
+                Order.setOwner(order, 1);
+                Assert.assertEquals(0, orderBook.placeOrder(order));
+                Order.setType(order, OrderTypes.ICEBERG);
+                Order.setDisplaySize(order, 20);
+                Order.setSize(order, 50);
+                Order.setOwner(order, 2);
+                Assert.assertEquals(1, orderBook.placeOrder(order));
+                Order.setType(order, OrderTypes.LIMIT);
+                Order.setSize(order, 30);
+                Assert.assertEquals(2, orderBook.placeOrder(order));
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 40);
+                Order.setOwner(order, 0);
+                Assert.assertEquals(3, orderBook.placeOrder(order));
+
+                Assert.assertTrue(orderBook.getOrderInfo(2, info));
+                Assert.assertEquals(110_10, OrderInfo.getPrice(info));
+                Assert.assertEquals(0, OrderInfo.getStopPrice(info));
+                Assert.assertEquals(30, OrderInfo.getSize(info));
+                Assert.assertEquals(30, OrderInfo.getOriginalSize(info));
+                // displayed sizes of partially filled order and iceberg are ahead
+                Assert.assertEquals(80, OrderInfo.getSizeAhead(info));
+                Assert.assertEquals(2, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(OrderSides.SELL, OrderInfo.getSide(info));
+                Assert.assertEquals(OrderTypes.LIMIT, OrderInfo.getType(info));
+                Assert.assertEquals(2, OrderInfo.getOwner(info));
+                Assert.assertTrue(OrderInfo.getTimestamp(info) >= start);
+                Assert.assertTrue(OrderInfo.getTimestamp(info) <= System.currentTimeMillis());
+
+                Assert.assertTrue(orderBook.getOrderInfo(1, info));
+                Assert.assertEquals(20, OrderInfo.getSize(info));
+                Assert.assertEquals(30, OrderInfo.getReserve(info));
+                Assert.assertEquals(50, OrderInfo.getOriginalSize(info));
+                Assert.assertEquals(60, OrderInfo.getSizeAhead(info));
+                Assert.assertEquals(OrderTypes.ICEBERG, OrderInfo.getType(info));
+
+                Assert.assertTrue(orderBook.getOrderInfo(0, info));
+                Assert.assertEquals(60, OrderInfo.getSize(info));
+                Assert.assertEquals(100, OrderInfo.getOriginalSize(info));
+                Assert.assertEquals(0, OrderInfo.getSizeAhead(info));
+                Assert.assertEquals(0, OrderInfo.getOrdersAhead(info));
+
+                // filled size is kept across amends, with and without loss of priority
+                Assert.assertTrue(orderBook.amendOrder(0, 110_10, 50));
+                Assert.assertTrue(orderBook.getOrderInfo(0, info));
+                Assert.assertEquals(90, OrderInfo.getOriginalSize(info));
+                Assert.assertEquals(0, OrderInfo.getOrdersAhead(info));
+                Assert.assertTrue(orderBook.amendOrder(0, 110_10, 70));
+                Assert.assertTrue(orderBook.getOrderInfo(0, info));
+                Assert.assertEquals(110, OrderInfo.getOriginalSize(info));
+                Assert.assertEquals(2, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(50, OrderInfo.getSizeAhead(info));
+                Assert.assertTrue(orderBook.getOrderInfoExact(0, info));
+                Assert.assertEquals(2, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(50, OrderInfo.getSizeAhead(info));
+                Assert.assertEquals(110, OrderInfo.getOriginalSize(info));
+
+                // estimate still counts size by which order between the head and the order was reduced
+                Assert.assertTrue(orderBook.amendOrder(2, 110_10, 10));
+                Assert.assertTrue(orderBook.getOrderInfo(0, info));
+                Assert.assertEquals(2, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(50, OrderInfo.getSizeAhead(info));
+                Assert.assertTrue(orderBook.getOrderInfoExact(0, info));
+                Assert.assertEquals(2, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(30, OrderInfo.getSizeAhead(info));
+
+                // order cancelled right behind the head is not counted
+                Assert.assertTrue(orderBook.cancelOrder(2));
+                Assert.assertTrue(orderBook.getOrderInfo(0, info));
+                Assert.assertEquals(1, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(20, OrderInfo.getSizeAhead(info));
+                Assert.assertTrue(orderBook.getOrderInfoExact(0, info));
+                Assert.assertEquals(1, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(20, OrderInfo.getSizeAhead(info));
+
+                // filled slice of iceberg head is replenished behind the order, which becomes the head
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, 20);
+                Assert.assertEquals(4, orderBook.placeOrder(order));
+                Assert.assertTrue(orderBook.getOrderInfo(0, info));
+                Assert.assertEquals(0, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(0, OrderInfo.getSizeAhead(info));
+                Assert.assertTrue(orderBook.getOrderInfoExact(0, info));
+                Assert.assertEquals(0, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(0, OrderInfo.getSizeAhead(info));
+                Assert.assertTrue(orderBook.getOrderInfo(1, info));
+                Assert.assertEquals(1, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(70, OrderInfo.getSizeAhead(info));
+                Assert.assertTrue(orderBook.getOrderInfoExact(1, info));
+                Assert.assertEquals(1, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(70, OrderInfo.getSizeAhead(info));
+
+                Order.setType(order, OrderTypes.STOP_LIMIT);
+                Order.setStopPrice(order, 120_00);
+                Order.setPrice(order, 121_00);
+                Order.setSize(order, 10);
+                Assert.assertEquals(5, orderBook.placeOrder(order));
+                Assert.assertTrue(orderBook.getOrderInfo(5, info));
+                Assert.assertEquals(121_00, OrderInfo.getPrice(info));
+                Assert.assertEquals(120_00, OrderInfo.getStopPrice(info));
+                Assert.assertEquals(10, OrderInfo.getSize(info));
+                Assert.assertEquals(10, OrderInfo.getOriginalSize(info));
+                Assert.assertEquals(OrderTypes.STOP_LIMIT, OrderInfo.getType(info));
+                Assert.assertEquals(OrderSides.BUY, OrderInfo.getSide(info));
+
+                Assert.assertFalse(orderBook.getOrderInfo(4, info));
+                Assert.assertTrue(orderBook.cancelOrder(5));
+                Assert.assertFalse(orderBook.getOrderInfo(5, info));
+                Assert.assertFalse(orderBook.getOrderInfo(-1, info));
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+                Unsafe.free(info, OrderInfo.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testGrowth() throws Exception {
+        File file = File.createTempFile("orderbook", ".snapshot");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        long expectedMem = Unsafe.getMemUsed();
+        // several chunks of order book entries and order index resizes
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 16, OrderBookTest::captureExecutionReport);
+             OrderBook restored = new OrderBook(100_00, 200_00, 16, OrderBookTest::captureExecutionReport)) {
+            orderBook.setPretouchExecutor(executor);
+            long order = Unsafe.malloc(Order.SIZE);
+            long info = Unsafe.malloc(OrderInfo.SIZE);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                long expectedSizeAhead = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    Order.setPrice(order, 110_00 + i % 100);
+                    Order.setSize(order, 1 + i % 7);
+                    Assert.assertEquals(i, orderBook.limitOrder(order));
+                    if (i % 100 == 99 && i < 9_999) {
+                        expectedSizeAhead += 1 + i % 7;
+                    }
+                }
+                Assert.assertEquals(100, orderBook.getAskLevelCount());
+                Assert.assertTrue(orderBook.getOrderInfo(9_999, info));
+                Assert.assertEquals(99, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(expectedSizeAhead, OrderInfo.getSizeAhead(info));
+                for (int i = 1; i < 10_000; i += 2) {
+                    Assert.assertTrue(orderBook.cancelOrder(i));
+                }
+
+                // links between chunks survive snapshot
+                orderBook.writeSnapshot(file);
+                Assert.assertEquals(0, restored.restoreSnapshot(file));
+                Assert.assertEquals(OrderJournalTest.printOrderBook(orderBook), OrderJournalTest.printOrderBook(restored));
+                Assert.assertTrue(restored.getOrderInfo(9_998, info));
+                Assert.assertEquals(99, OrderInfo.getOrdersAhead(info));
+                Assert.assertEquals(1 + 9_998 % 7, OrderInfo.getOriginalSize(info));
+                Assert.assertFalse(restored.getOrderInfo(9_999, info));
+
+                // both books reuse free slots the same way
+                for (OrderBook book : new OrderBook[]{orderBook, restored}) {
+                    Order.setSide(order, OrderSides.BUY);
+                    Order.setPrice(order, 110_50);
+                    Order.setSize(order, 20_000);
+                    Assert.assertEquals(10_000, book.limitOrder(order));
+                    Order.setSide(order, OrderSides.SELL);
+                    for (int i = 0; i < 10_000; i++) {
+                        Order.setPrice(order, 120_00 + i % 10);
+                        Order.setSize(order, 5);
+                        book.limitOrder(order);
+                    }
+                }
+                Assert.assertEquals(OrderJournalTest.printOrderBook(orderBook), OrderJournalTest.printOrderBook(restored));
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+                Unsafe.free(info, OrderInfo.SIZE);
+            }
+        } finally {
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testCompactOverflow() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport, false, true)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                Order.setSize(order, 1L << 31);
+                Assert.assertEquals(-1, orderBook.limitOrder(order));
+                Order.setPrice(order, 1L << 31);
+                Order.setSize(order, 10);
+                Assert.assertEquals(-1, orderBook.limitOrder(order));
+
+                // price point size is checked before order rests
+                Order.setPrice(order, 110_10);
+                Order.setSize(order, Integer.MAX_VALUE - 10);
+                Assert.assertEquals(0, orderBook.limitOrder(order));
+                Order.setSize(order, 11);
+                Assert.assertEquals(-1, orderBook.limitOrder(order));
+                Order.setSize(order, 5);
+                Assert.assertEquals(1, orderBook.limitOrder(order));
+                Assert.assertFalse(orderBook.amendOrder(1, 110_10, 11));
+                Assert.assertFalse(orderBook.amendOrder(1, 1L << 31, 5));
+                Assert.assertTrue(orderBook.amendOrder(1, 110_10, 10));
+                Assert.assertEquals(Integer.MAX_VALUE, orderBook.getSizeAtEntry(orderBook.getEntryAtAskLevel(0)));
+
+                Order.setSide(order, OrderSides.BUY);
+                Order.setSize(order, Integer.MAX_VALUE - 10);
+                Assert.assertEquals(2, orderBook.limitOrder(order));
+                Assert.assertEquals(10, orderBook.getSizeAtEntry(orderBook.getEntryAtAskLevel(0)));
+                Assert.assertEquals(0, orderBook.getBidLevelCount());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testCompactLevelCheckAcrossPages() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport, false, true);
+             TopOfBook topOfBook = new TopOfBook()) {
+            orderBook.setTopOfBook(topOfBook);
+            long order = Unsafe.malloc(Order.SIZE);
+            long bbo = Unsafe.malloc(BestBidOffer.SIZE);
+            try {
+                Order.init(order);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_10);
+                Order.setSize(order, 10);
+                Assert.assertEquals(0, orderBook.placeOrder(order));
+
+                // checking room at a price on another page does not allocate the page
+                long mem = Unsafe.getMemUsed();
+                Order.setPrice(order, 130_00);
+                Assert.assertTrue(orderBook.isAccepted(order));
+                Assert.assertEquals(mem, Unsafe.getMemUsed());
+
+                // lone order repriced to another page
+                Assert.assertTrue(orderBook.amendOrder(0, 120_00, 10));
+                topOfBook.read(bbo);
+                Assert.assertEquals(120_00, BestBidOffer.getAsk(bbo));
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,0,0,12000,10\n", sink.toString());
+
+                // rejected order leaves nothing behind
+                mem = Unsafe.getMemUsed();
+                Order.setPrice(order, 120_00);
+                Order.setSize(order, Integer.MAX_VALUE);
+                Assert.assertEquals(-1, orderBook.placeOrder(order));
+                Order.setPrice(order, 140_00);
+                Order.setSize(order, 1L << 31);
+                Assert.assertEquals(-1, orderBook.placeOrder(order));
+                Assert.assertEquals(mem, Unsafe.getMemUsed());
+                Order.setSize(order, 10);
+
+                sink.clear();
+                Order.setType(order, OrderTypes.IMMEDIATE_OR_CANCEL);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 119_99);
+                Assert.assertEquals(1, orderBook.placeOrder(order));
+                Assert.assertEquals("1,10,BUY,NO_TRADE,0\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+                Unsafe.free(bbo, BestBidOffer.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testCompactStopLimitTriggeredOnFullLevel() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook orderBook = new OrderBook(100_00, 200_00, 1000, OrderBookTest::captureExecutionReport, false, true)) {
+            long order = Unsafe.malloc(Order.SIZE);
+            try {
+                Order.init(order);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 100_00);
+                Order.setSize(order, Integer.MAX_VALUE - 5);
+                Assert.assertEquals(0, orderBook.placeOrder(order));
+
+                // not triggered yet, so room at its price is not checked
+                Order.setType(order, OrderTypes.STOP_LIMIT);
+                Order.setStopPrice(order, 101_00);
+                Order.setSize(order, 10);
+                Assert.assertEquals(1, orderBook.placeOrder(order));
+
+                Order.init(order);
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 101_00);
+                Order.setSize(order, 1);
+                Assert.assertEquals(2, orderBook.placeOrder(order));
+                Order.setSide(order, OrderSides.BUY);
+                Assert.assertEquals(3, orderBook.placeOrder(order));
+                Assert.assertEquals("2,1,SELL\n" +
+                        "3,1,BUY\n" +
+                        "1,10,BUY,NO_TRADE,0\n", sink.toString());
+
+                // triggered stop-limit order does not fit its price point and is cancelled
+                Assert.assertFalse(orderBook.cancelOrder(1));
+                sink.clear();
+                orderBook.getOrderBook(OrderBookTest::printOrderBook);
+                Assert.assertEquals("0,10000," + (Integer.MAX_VALUE - 5) + ",0,0\n", sink.toString());
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testCompactMatchesRegular() throws Exception {
+        File file = File.createTempFile("orderbook", ".snapshot");
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderBook regular = new OrderBook(100_00, 200_00, 16, OrderBookTest::captureExecutionReport);
+             OrderBook compact = new OrderBook(100_00, 200_00, 16, OrderBookTest::captureExecutionReport, false, true);
+             OrderBook restored = new OrderBook(100_00, 200_00, 16, OrderBookTest::captureExecutionReport, false, true)) {
+            long regularInfo = Unsafe.malloc(OrderInfo.SIZE);
+            long compactInfo = Unsafe.malloc(OrderInfo.SIZE);
+            try {
+                OrderJournalTest.generateFlow(regular, 11, 20_000);
+                String regularReports = sink.toString();
+                sink.clear();
+                OrderJournalTest.generateFlow(compact, 11, 20_000);
+                Assert.assertEquals(regularReports, sink.toString());
+                Assert.assertEquals(OrderJournalTest.printOrderBook(regular), OrderJournalTest.printOrderBook(compact));
+                for (long orderID = 0; orderID < 20_000; orderID++) {
+                    boolean resting = regular.getOrderInfo(orderID, regularInfo);
+                    Assert.assertEquals(resting, compact.getOrderInfo(orderID, compactInfo));
+                    if (!resting) {
+                        continue;
+                    }
+                    Assert.assertEquals(OrderInfo.getPrice(regularInfo), OrderInfo.getPrice(compactInfo));
+                    Assert.assertEquals(OrderInfo.getStopPrice(regularInfo), OrderInfo.getStopPrice(compactInfo));
+                    Assert.assertEquals(OrderInfo.getSize(regularInfo), OrderInfo.getSize(compactInfo));
+                    Assert.assertEquals(OrderInfo.getOriginalSize(regularInfo), OrderInfo.getOriginalSize(compactInfo));
+                    Assert.assertEquals(OrderInfo.getSizeAhead(regularInfo), OrderInfo.getSizeAhead(compactInfo));
+                    Assert.assertEquals(OrderInfo.getOrdersAhead(regularInfo), OrderInfo.getOrdersAhead(compactInfo));
+                    Assert.assertEquals(OrderInfo.getType(regularInfo), OrderInfo.getType(compactInfo));
+                }
+
+                // snapshot is restored only into book of the same layout
+                compact.writeSnapshot(file);
+                try (OrderBook other = new OrderBook(100_00, 200_00, 16, OrderBookTest::captureExecutionReport)) {
+                    Assert.assertEquals(-1, other.restoreSnapshot(file));
+                }
+                Assert.assertEquals(0, restored.restoreSnapshot(file));
+                Assert.assertEquals(OrderJournalTest.printOrderBook(compact), OrderJournalTest.printOrderBook(restored));
+                sink.clear();
+                OrderJournalTest.generateFlow(compact, 12, 1_000);
+                String compactReports = sink.toString();
+                sink.clear();
+                OrderJournalTest.generateFlow(restored, 12, 1_000);
+                Assert.assertEquals(compactReports, sink.toString());
+                Assert.assertEquals(OrderJournalTest.printOrderBook(compact), OrderJournalTest.printOrderBook(restored));
+            } finally {
+                Unsafe.free(regularInfo, OrderInfo.SIZE);
+                Unsafe.free(compactInfo, OrderInfo.SIZE);
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private static void assertBidLevels(OrderBook orderBook, long best, long worst) {
+        long level = 0;
+        for (long price = best; price >= worst; price -= 2) {
+            Assert.assertEquals(price, orderBook.getPriceAtEntry(orderBook.getEntryAtBidLevel(level++)));
+        }
+        Assert.assertEquals(-1, orderBook.getEntryAtBidLevel(level));
+    }
+}
@@ -0,0 +1,162 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.ExecutionReport;
+import com.appsicle.orderbook.model.GatewayMessage;
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderSides;
+import com.appsicle.orderbook.model.OrderTypes;
+import com.questdb.std.Unsafe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class OrderGatewayTest {
+
+    @Test
+    public void testOrderEntryOverLoopback() throws Exception {
+        long expectedMem = Unsafe.getMemUsed();
+        AtomicBoolean done = new AtomicBoolean();
+        try (OrderGateway gateway = new OrderGateway(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+             OrderBook orderBook = new OrderBook(100_00, 200_00, 100, gateway)) {
+            gateway.setOrderBook(orderBook);
+            orderBook.setSelfTradePrevention(SelfTradePrevention.CANCEL_AGGRESSOR);
+            Thread thread = new Thread(() -> {
+                while (!done.get()) {
+                    gateway.poll();
+                }
+            });
+            thread.start();
+            try (Client a = new Client(gateway.getLocalPort()); Client b = new Client(gateway.getLocalPort())) {
+                a.newOrder(OrderSides.SELL, 150_00, 10);
+                a.assertResponse(GatewayMessage.NEW_ORDER, true, 0);
+
+                // request split across two writes
+                b.newOrder(OrderSides.BUY, 150_00, 4, 20);
+                // acknowledgement goes ahead of executions of the order
+                b.assertResponse(GatewayMessage.NEW_ORDER, true, 1);
+                b.assertExecutionReport(1, 4, OrderSides.BUY, true, 0);
+                a.assertExecutionReport(0, 4, OrderSides.SELL, false, 6);
+
+                // sessions cannot touch orders of each other
+                b.cancelOrder(0);
+                b.assertResponse(GatewayMessage.CANCEL_ORDER, false, 0);
+                a.amendOrder(0, 150_00, 3);
+                a.assertResponse(GatewayMessage.AMEND_ORDER, true, 0);
+                b.amendOrder(0, 150_00, 1);
+                b.assertResponse(GatewayMessage.AMEND_ORDER, false, 0);
+
+                // same session never trades with itself
+                a.newOrder(OrderSides.BUY, 150_00, 5);
+                a.assertResponse(GatewayMessage.NEW_ORDER, true, 2);
+                a.assertExecutionReport(2, 5, OrderSides.BUY, true, 0);
+
+                b.newOrder(OrderSides.BUY, 150_00, 5);
+                b.assertResponse(GatewayMessage.NEW_ORDER, true, 3);
+                b.assertExecutionReport(3, 3, OrderSides.BUY, true, 2);
+                a.assertExecutionReport(0, 3, OrderSides.SELL, false, 0);
+
+                b.cancelOrder(3);
+                b.assertResponse(GatewayMessage.CANCEL_ORDER, true, 3);
+                a.cancelOrder(0);
+                a.assertResponse(GatewayMessage.CANCEL_ORDER, false, 0);
+
+                a.newOrder((byte) 7, 150_00, 5);
+                a.assertResponse(GatewayMessage.NEW_ORDER, false, -1);
+            } finally {
+                done.set(true);
+                thread.join();
+            }
+            Assert.assertEquals(0, orderBook.getBidLevelCount() + orderBook.getAskLevelCount());
+            Assert.assertEquals(0, gateway.getAcceptFailureCount());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private static class Client implements AutoCloseable {
+        private final SocketChannel channel;
+        private final ByteBuffer request = ByteBuffer.allocateDirect(GatewayMessage.REQUEST_SIZE);
+        private final ByteBuffer response = ByteBuffer.allocateDirect(GatewayMessage.RESPONSE_SIZE);
+        private final long requestAddress = MappedMemory.getAddress(request);
+        private final long responseAddress = MappedMemory.getAddress(response);
+
+        Client(int port) throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        void newOrder(byte side, long price, long size) throws IOException {
+            newOrder(side, price, size, GatewayMessage.REQUEST_SIZE);
+        }
+
+        void newOrder(byte side, long price, long size, int firstWrite) throws IOException {
+            GatewayMessage.setType(requestAddress, GatewayMessage.NEW_ORDER);
+            long order = GatewayMessage.getOrder(requestAddress);
+            Order.setSide(order, side);
+            Order.setPrice(order, price);
+            Order.setSize(order, size);
+            Order.setType(order, OrderTypes.LIMIT);
+            ((Buffer) request).clear().limit(firstWrite);
+            write();
+            ((Buffer) request).limit(GatewayMessage.REQUEST_SIZE);
+            write();
+        }
+
+        void cancelOrder(long orderID) throws IOException {
+            GatewayMessage.setType(requestAddress, GatewayMessage.CANCEL_ORDER);
+            GatewayMessage.setOrderID(requestAddress, orderID);
+            ((Buffer) request).clear();
+            write();
+        }
+
+        void amendOrder(long orderID, long price, long size) throws IOException {
+            GatewayMessage.setType(requestAddress, GatewayMessage.AMEND_ORDER);
+            GatewayMessage.setOrderID(requestAddress, orderID);
+            GatewayMessage.setPrice(requestAddress, price);
+            GatewayMessage.setSize(requestAddress, size);
+            ((Buffer) request).clear();
+            write();
+        }
+
+        void assertResponse(byte type, boolean result, long orderID) throws IOException {
+            read();
+            Assert.assertEquals(type, GatewayMessage.getType(responseAddress));
+            Assert.assertEquals(result, GatewayMessage.getResult(responseAddress));
+            Assert.assertEquals(orderID, GatewayMessage.getOrderID(responseAddress));
+        }
+
+        void assertExecutionReport(long orderID, long size, byte side, boolean aggressor, long leavesSize) throws IOException {
+            read();
+            Assert.assertEquals(GatewayMessage.EXECUTION_REPORT, GatewayMessage.getType(responseAddress));
+            long executionReport = GatewayMessage.getExecutionReport(responseAddress);
+            Assert.assertEquals(orderID, ExecutionReport.getOrderID(executionReport));
+            Assert.assertEquals(size, ExecutionReport.getOrderSize(executionReport));
+            Assert.assertEquals(side, ExecutionReport.getOrderSide(executionReport));
+            Assert.assertEquals(aggressor, ExecutionReport.isAggressor(executionReport));
+            Assert.assertEquals(leavesSize, ExecutionReport.getLeavesSize(executionReport));
+        }
+
+        private void write() throws IOException {
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+        }
+
+        private void read() throws IOException {
+            ((Buffer) response).clear();
+            while (response.hasRemaining()) {
+                Assert.assertTrue(channel.read(response) >= 0);
+            }
+        }
+    }
+}
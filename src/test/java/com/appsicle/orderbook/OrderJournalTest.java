@@ -0,0 +1,284 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderInfo;
+import com.appsicle.orderbook.model.OrderSides;
+import com.appsicle.orderbook.model.OrderTypes;
+import com.appsicle.orderbook.model.TradeReport;
+import com.questdb.std.Unsafe;
+import com.questdb.std.str.StringSink;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+public class OrderJournalTest {
+
+    // small windows make journal cross window boundaries
+    private static final long WINDOW_SIZE = 64 * 100;
+
+    private final StringSink sink = new StringSink();
+
+    @Test
+    public void testReplay() throws IOException {
+        File file = File.createTempFile("orderbook", ".journal");
+        long expectedMem = Unsafe.getMemUsed();
+        try {
+            String expectedTrades;
+            String expectedBook;
+            long expectedOrderID;
+
+            try (OrderJournal journal = new OrderJournal(file, WINDOW_SIZE, 16); OrderBook orderBook = newOrderBook()) {
+                orderBook.setJournal(journal);
+                generateFlow(orderBook, 1, 1000);
+                Assert.assertTrue(journal.getRecordCount() > 1000);
+                expectedTrades = sink.toString();
+                expectedBook = printOrderBook(orderBook);
+                orderBook.setJournal(null);
+                expectedOrderID = nextOrderID(orderBook);
+            }
+
+            sink.clear();
+            try (OrderJournal journal = new OrderJournal(file, WINDOW_SIZE, 16); OrderBook orderBook = newOrderBook()) {
+                Assert.assertEquals(journal.getRecordCount(), journal.replay(orderBook));
+                Assert.assertEquals(expectedTrades, sink.toString());
+                Assert.assertEquals(expectedBook, printOrderBook(orderBook));
+                Assert.assertEquals(expectedOrderID, nextOrderID(orderBook));
+            }
+
+            sink.clear();
+            try (OrderJournal journal = new OrderJournal(file, WINDOW_SIZE, 0); OrderBook orderBook = newOrderBook()) {
+                journal.replay(orderBook);
+
+                // recovered book carries on appending to the same journal
+                orderBook.setJournal(journal);
+                generateFlow(orderBook, 2, 500);
+                expectedTrades = sink.toString();
+                expectedBook = printOrderBook(orderBook);
+            }
+
+            sink.clear();
+            try (OrderJournal journal = new OrderJournal(file, 0); OrderBook orderBook = newOrderBook()) {
+                journal.replay(orderBook);
+                Assert.assertEquals(expectedTrades, sink.toString());
+                Assert.assertEquals(expectedBook, printOrderBook(orderBook));
+            }
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testSnapshotAndJournalTail() throws IOException {
+        File journalFile = File.createTempFile("orderbook", ".journal");
+        File snapshotFile = File.createTempFile("orderbook", ".snapshot");
+        long expectedMem = Unsafe.getMemUsed();
+        try {
+            String expectedTrades;
+            String expectedBook;
+            long expectedOrderID;
+            long snapshotRecordCount;
+
+            try (OrderJournal journal = new OrderJournal(journalFile, WINDOW_SIZE, 0); OrderBook orderBook = newOrderBook()) {
+                orderBook.setJournal(journal);
+                generateFlow(orderBook, 3, 1000);
+                orderBook.writeSnapshot(snapshotFile);
+                snapshotRecordCount = journal.getRecordCount();
+
+                sink.clear();
+                generateFlow(orderBook, 4, 300);
+                expectedTrades = sink.toString();
+                expectedBook = printOrderBook(orderBook);
+                orderBook.setJournal(null);
+                expectedOrderID = nextOrderID(orderBook);
+            }
+
+            sink.clear();
+            // larger book allocates its slab elsewhere, restored links have to be rebased
+            try (OrderJournal journal = new OrderJournal(journalFile, WINDOW_SIZE, 0);
+                 OrderBook orderBook = new OrderBook(100_00, 200_00, 5000, this::captureTradeReport, true)) {
+                Assert.assertEquals(snapshotRecordCount, orderBook.restoreSnapshot(snapshotFile));
+                Assert.assertEquals(journal.getRecordCount() - snapshotRecordCount, journal.replay(orderBook, snapshotRecordCount));
+                Assert.assertEquals(expectedTrades, sink.toString());
+                Assert.assertEquals(expectedBook, printOrderBook(orderBook));
+                Assert.assertEquals(expectedOrderID, nextOrderID(orderBook));
+            }
+
+            try (OrderBook orderBook = newOrderBook()) {
+                Assert.assertEquals(-1, orderBook.restoreSnapshot(journalFile));
+            }
+        } finally {
+            Assert.assertTrue(journalFile.delete());
+            Assert.assertTrue(snapshotFile.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testRejectedInputNotJournaled() throws IOException {
+        File file = File.createTempFile("orderbook", ".journal");
+        long expectedMem = Unsafe.getMemUsed();
+        long order = Unsafe.malloc(Order.SIZE);
+        try (OrderJournal journal = new OrderJournal(file, WINDOW_SIZE, 0); OrderBook orderBook = newOrderBook()) {
+            orderBook.setJournal(journal);
+            Order.init(order);
+            Order.setSide(order, OrderSides.BUY);
+            Order.setPrice(order, 150_00);
+            Order.setSize(order, 10);
+            Assert.assertEquals(0, orderBook.placeOrder(order));
+            Assert.assertEquals(1, journal.getRecordCount());
+
+            Order.setType(order, (byte) 9);
+            Assert.assertEquals(-1, orderBook.placeOrder(order));
+            Order.setType(order, OrderTypes.ICEBERG);
+            Order.setDisplaySize(order, 0);
+            Assert.assertEquals(-1, orderBook.placeOrder(order));
+            Assert.assertFalse(orderBook.cancelOrder(1));
+            Assert.assertFalse(orderBook.amendOrder(1, 150_00, 5));
+            Assert.assertEquals(1, journal.getRecordCount());
+
+            Assert.assertTrue(orderBook.amendOrder(0, 150_00, 5));
+            Assert.assertTrue(orderBook.cancelOrder(0));
+            Assert.assertEquals(3, journal.getRecordCount());
+        } finally {
+            Unsafe.free(order, Order.SIZE);
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testRolloverDoesNotSync() throws IOException {
+        File file = File.createTempFile("orderbook", ".journal");
+        try (OrderJournal journal = new OrderJournal(file, WINDOW_SIZE, 0)) {
+            // three full windows and part of the fourth
+            for (int i = 0; i < 350; i++) {
+                journal.appendCancelOrder(i);
+            }
+            Assert.assertEquals(0, journal.getSyncCount());
+
+            // one sync covers windows dropped since the last one
+            journal.sync();
+            Assert.assertEquals(1, journal.getSyncCount());
+
+            for (int i = 0; i < 100; i++) {
+                journal.appendCancelOrder(i);
+            }
+            Assert.assertEquals(1, journal.getSyncCount());
+            journal.sync();
+            Assert.assertEquals(2, journal.getSyncCount());
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testReplayTimestamps() throws IOException, InterruptedException {
+        File file = File.createTempFile("orderbook", ".journal");
+        long expectedMem = Unsafe.getMemUsed();
+        long order = Unsafe.malloc(Order.SIZE);
+        long info = Unsafe.malloc(OrderInfo.SIZE);
+        try {
+            long[] expectedTimestamps = new long[3];
+            try (OrderJournal journal = new OrderJournal(file, WINDOW_SIZE, 0); OrderBook orderBook = newOrderBook()) {
+                orderBook.setJournal(journal);
+                Order.init(order);
+                Order.setSide(order, OrderSides.BUY);
+                Order.setPrice(order, 150_00);
+                Order.setSize(order, 10);
+                orderBook.placeOrder(order);
+                Thread.sleep(2);
+                orderBook.placeOrder(order);
+                Thread.sleep(2);
+                // order moved to another price is stamped again
+                orderBook.amendOrder(0, 149_00, 10);
+                Order.setType(order, OrderTypes.STOP);
+                Order.setStopPrice(order, 160_00);
+                orderBook.placeOrder(order);
+                for (int i = 0; i < expectedTimestamps.length; i++) {
+                    Assert.assertTrue(orderBook.getOrderInfo(i, info));
+                    expectedTimestamps[i] = OrderInfo.getTimestamp(info);
+                }
+                Assert.assertTrue(expectedTimestamps[0] > expectedTimestamps[1]);
+            }
+
+            Thread.sleep(2);
+            try (OrderJournal journal = new OrderJournal(file, WINDOW_SIZE, 0); OrderBook orderBook = newOrderBook()) {
+                journal.replay(orderBook);
+                for (int i = 0; i < expectedTimestamps.length; i++) {
+                    Assert.assertTrue(orderBook.getOrderInfo(i, info));
+                    Assert.assertEquals(expectedTimestamps[i], OrderInfo.getTimestamp(info));
+                }
+            }
+        } finally {
+            Unsafe.free(order, Order.SIZE);
+            Unsafe.free(info, OrderInfo.SIZE);
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private OrderBook newOrderBook() {
+        return new OrderBook(100_00, 200_00, 2000, this::captureTradeReport, true);
+    }
+
+    private void captureTradeReport(long tradeReport) {
+        sink.put(TradeReport.getTradeID(tradeReport)).put(',');
+        sink.put(TradeReport.getPrice(tradeReport)).put(',');
+        sink.put(TradeReport.getSize(tradeReport)).put(',');
+        sink.put(TradeReport.getBuyOrderID(tradeReport)).put(',');
+        sink.put(TradeReport.getSellOrderID(tradeReport)).put('\n');
+    }
+
+    static String printOrderBook(OrderBook orderBook) {
+        StringSink book = new StringSink();
+        orderBook.getOrderBook((level, bid, bidSize, ask, askSize) ->
+                book.put(level).put(',').put(bid).put(',').put(bidSize).put(',').put(ask).put(',').put(askSize).put('\n'));
+        return book.toString();
+    }
+
+    static long nextOrderID(OrderBook orderBook) {
+        long order = Unsafe.malloc(Order.SIZE);
+        try {
+            // price and size do not match anything, book must not have journal attached
+            Order.setSide(order, OrderSides.BUY);
+            Order.setPrice(order, 1);
+            Order.setSize(order, 1);
+            long orderID = orderBook.limitOrder(order);
+            orderBook.cancelOrder(orderID);
+            return orderID;
+        } finally {
+            Unsafe.free(order, Order.SIZE);
+        }
+    }
+
+    static void generateFlow(OrderBook orderBook, long seed, int count) {
+        Random random = new Random(seed);
+        long order = Unsafe.malloc(Order.SIZE);
+        Order.init(order);
+        try {
+            long lastOrderID = 0;
+            for (int i = 0; i < count; i++) {
+                Order.setSide(order, random.nextBoolean() ? OrderSides.BUY : OrderSides.SELL);
+                Order.setPrice(order, 150_00 + random.nextInt(40) - 20);
+                Order.setSize(order, 1 + random.nextInt(100));
+                // some orders are stops, snapshot has to carry pending ones
+                Order.setType(order, random.nextInt(10) == 0 ? OrderTypes.STOP_LIMIT : OrderTypes.LIMIT);
+                Order.setStopPrice(order, 150_00 + random.nextInt(40) - 20);
+                lastOrderID = orderBook.placeOrder(order);
+
+                int action = random.nextInt(4);
+                if (action == 0) {
+                    orderBook.cancelOrder(lastOrderID - random.nextInt(50));
+                } else if (action == 1) {
+                    orderBook.amendOrder(lastOrderID - random.nextInt(50), 150_00 + random.nextInt(40) - 20, random.nextInt(100));
+                }
+            }
+        } finally {
+            Unsafe.free(order, Order.SIZE);
+        }
+    }
+}
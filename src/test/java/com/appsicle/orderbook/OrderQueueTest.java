@@ -0,0 +1,121 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.ExecutionReport;
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderSides;
+import com.questdb.std.Unsafe;
+import com.questdb.std.str.StringSink;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CyclicBarrier;
+
+public class OrderQueueTest {
+
+    private static final StringSink sink = new StringSink();
+    private long executedSize;
+
+    private static void captureOrder(long order) {
+        sink.put(Order.getSide(order) == OrderSides.BUY ? "BUY," : "SELL,");
+        sink.put(Order.getPrice(order)).put(',');
+        sink.put(Order.getSize(order)).put('\n');
+    }
+
+    @Before
+    public void setUp() {
+        sink.clear();
+    }
+
+    @Test
+    public void testOfferAndDrain() {
+        long expectedMem = Unsafe.getMemUsed();
+        try (OrderQueue queue = new OrderQueue(3)) {
+            Assert.assertEquals(4, queue.getCapacity());
+
+            long order = Unsafe.malloc(Order.SIZE);
+            Order.init(order);
+            try {
+                Order.setSide(order, OrderSides.SELL);
+                Order.setPrice(order, 110_12);
+                Order.setSize(order, 100);
+                Assert.assertTrue(queue.offer(order));
+                Assert.assertTrue(queue.offer(OrderSides.BUY, 110_10, 200));
+                Assert.assertTrue(queue.offer(OrderSides.BUY, 110_11, 300));
+                Assert.assertTrue(queue.offer(OrderSides.SELL, 110_13, 400));
+                Assert.assertFalse(queue.offer(order));
+
+                Assert.assertEquals(3, queue.drain(OrderQueueTest::captureOrder, 3));
+                Assert.assertEquals("SELL,11012,100\n" +
+                        "BUY,11010,200\n" +
+                        "BUY,11011,300\n", sink.toString());
+
+                // slots are reused after drain
+                Assert.assertTrue(queue.offer(OrderSides.BUY, 110_09, 500));
+                Assert.assertTrue(queue.offer(OrderSides.BUY, 110_08, 600));
+
+                sink.clear();
+                Assert.assertEquals(3, queue.drain(OrderQueueTest::captureOrder, 10));
+                Assert.assertEquals("SELL,11013,400\n" +
+                        "BUY,11009,500\n" +
+                        "BUY,11008,600\n", sink.toString());
+                Assert.assertEquals(0, queue.drain(OrderQueueTest::captureOrder, 10));
+            } finally {
+                Unsafe.free(order, Order.SIZE);
+            }
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        final int producerCount = 4;
+        final int ordersPerProducer = 100_000;
+
+        long expectedMem = Unsafe.getMemUsed();
+        try (
+                OrderQueue queue = new OrderQueue(1024);
+                OrderBook orderBook = new OrderBook(100_00, 200_00, producerCount * ordersPerProducer, this::onExecution)
+        ) {
+            final CyclicBarrier barrier = new CyclicBarrier(producerCount);
+            Thread[] producers = new Thread[producerCount];
+            for (int i = 0; i < producerCount; i++) {
+                final byte side = i % 2 == 0 ? OrderSides.BUY : OrderSides.SELL;
+                producers[i] = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        for (int k = 0; k < ordersPerProducer; k++) {
+                            while (!queue.offer(side, 150_00, 1)) {
+                                Thread.yield();
+                            }
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+
+            try (MatchingThread matchingThread = new MatchingThread("matching", queue, orderBook, WaitStrategy.YIELD, 64)) {
+                matchingThread.start();
+                for (Thread producer : producers) {
+                    producer.start();
+                }
+                for (Thread producer : producers) {
+                    producer.join();
+                }
+            }
+
+            // every buy is matched against a sell, each trade produces two reports
+            Assert.assertEquals(producerCount * ordersPerProducer, executedSize);
+            Assert.assertEquals(0, orderBook.getBidLevelCount());
+            Assert.assertEquals(0, orderBook.getAskLevelCount());
+        }
+
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private void onExecution(long executionReport) {
+        executedSize += ExecutionReport.getOrderSize(executionReport);
+    }
+}
@@ -0,0 +1,131 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.TradeReport;
+import com.questdb.std.Unsafe;
+import com.questdb.std.str.StringSink;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ReplicationChannelTest {
+
+    @Test
+    public void testReplicasFollowPrimary() throws Exception {
+        File file = File.createTempFile("orderbook", ".replication");
+        long expectedMem = Unsafe.getMemUsed();
+        StringSink primaryTrades = new StringSink();
+        StringSink replicaTrades0 = new StringSink();
+        StringSink replicaTrades1 = new StringSink();
+        AtomicBoolean done = new AtomicBoolean();
+        // second channel maps the same file the way replica process does
+        try (ReplicationChannel channel = new ReplicationChannel(file, 64, 2, WaitStrategy.YIELD);
+             ReplicationChannel replicaChannel = new ReplicationChannel(file, 64, 2, WaitStrategy.YIELD);
+             OrderBook primary = newOrderBook(primaryTrades);
+             OrderBook replicaBook0 = newOrderBook(replicaTrades0);
+             OrderBook replicaBook1 = newOrderBook(replicaTrades1)) {
+            OrderReplica replica0 = new OrderReplica(channel, 0, replicaBook0);
+            OrderReplica replica1 = new OrderReplica(replicaChannel, 1, replicaBook1);
+            Thread thread0 = startReplica(replica0, done);
+            Thread thread1 = startReplica(replica1, done);
+
+            // ring is much smaller than the flow, primary waits for replicas
+            primary.setReplicationChannel(channel);
+            OrderJournalTest.generateFlow(primary, 5, 2000);
+            primary.setReplicationChannel(null);
+            done.set(true);
+            thread0.join();
+            thread1.join();
+
+            Assert.assertTrue(channel.getPublishedSequence() > 2000);
+            Assert.assertEquals(channel.getPublishedSequence(), replicaChannel.getPublishedSequence());
+            for (OrderReplica replica : new OrderReplica[]{replica0, replica1}) {
+                Assert.assertEquals(0, replica.getLag());
+                Assert.assertEquals(channel.getPublishedSequence(), replica.getSequence());
+            }
+            Assert.assertEquals(primaryTrades.toString(), replicaTrades0.toString());
+            Assert.assertEquals(primaryTrades.toString(), replicaTrades1.toString());
+            String expectedBook = OrderJournalTest.printOrderBook(primary);
+            Assert.assertEquals(expectedBook, OrderJournalTest.printOrderBook(replicaBook0));
+            Assert.assertEquals(expectedBook, OrderJournalTest.printOrderBook(replicaBook1));
+            long expectedOrderID = OrderJournalTest.nextOrderID(primary);
+            Assert.assertEquals(expectedOrderID, OrderJournalTest.nextOrderID(replicaBook0));
+            Assert.assertEquals(expectedOrderID, OrderJournalTest.nextOrderID(replicaBook1));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testPromotion() throws IOException {
+        File file = File.createTempFile("orderbook", ".replication");
+        File nextFile = File.createTempFile("orderbook", ".replication");
+        File snapshotFile = File.createTempFile("orderbook", ".snapshot");
+        long expectedMem = Unsafe.getMemUsed();
+        StringSink primaryTrades = new StringSink();
+        StringSink replicaTrades = new StringSink();
+        StringSink nextReplicaTrades = new StringSink();
+        try (ReplicationChannel channel = new ReplicationChannel(file, 4096, 1, WaitStrategy.BUSY_SPIN);
+             ReplicationChannel nextChannel = new ReplicationChannel(nextFile, 4096, 1, WaitStrategy.BUSY_SPIN);
+             OrderBook primary = newOrderBook(primaryTrades);
+             OrderBook replicaBook = newOrderBook(replicaTrades);
+             OrderBook nextReplicaBook = newOrderBook(nextReplicaTrades)) {
+            OrderReplica replica = new OrderReplica(channel, 0, replicaBook);
+            primary.setReplicationChannel(channel);
+            OrderJournalTest.generateFlow(primary, 6, 1000);
+            long published = channel.getPublishedSequence();
+
+            Assert.assertEquals(100, replica.poll(100));
+            Assert.assertEquals(published - 100, replica.getLag());
+
+            // primary fails, replica applies the rest and takes over
+            Assert.assertEquals(published - 100, replica.promote());
+            Assert.assertEquals(0, replica.getLag());
+            Assert.assertEquals(primaryTrades.toString(), replicaTrades.toString());
+            Assert.assertEquals(OrderJournalTest.printOrderBook(primary), OrderJournalTest.printOrderBook(replicaBook));
+
+            // new replica starts from snapshot of the new primary
+            replicaBook.writeSnapshot(snapshotFile);
+            Assert.assertEquals(0, nextReplicaBook.restoreSnapshot(snapshotFile));
+            OrderReplica nextReplica = new OrderReplica(nextChannel, 0, nextReplicaBook);
+            replicaTrades.clear();
+            replicaBook.setReplicationChannel(nextChannel);
+            OrderJournalTest.generateFlow(replicaBook, 7, 500);
+            replicaBook.setReplicationChannel(null);
+            nextReplica.poll(Integer.MAX_VALUE);
+            Assert.assertEquals(replicaTrades.toString(), nextReplicaTrades.toString());
+            Assert.assertEquals(OrderJournalTest.printOrderBook(replicaBook), OrderJournalTest.printOrderBook(nextReplicaBook));
+            Assert.assertEquals(OrderJournalTest.nextOrderID(replicaBook), OrderJournalTest.nextOrderID(nextReplicaBook));
+        } finally {
+            Assert.assertTrue(file.delete());
+            Assert.assertTrue(nextFile.delete());
+            Assert.assertTrue(snapshotFile.delete());
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private static Thread startReplica(OrderReplica replica, AtomicBoolean done) {
+        Thread thread = new Thread(() -> {
+            while (!done.get() || replica.getLag() > 0) {
+                if (replica.poll(16) == 0) {
+                    Thread.yield();
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static OrderBook newOrderBook(StringSink sink) {
+        return new OrderBook(100_00, 200_00, 5000, tradeReport -> {
+            sink.put(TradeReport.getTradeID(tradeReport)).put(',');
+            sink.put(TradeReport.getPrice(tradeReport)).put(',');
+            sink.put(TradeReport.getSize(tradeReport)).put(',');
+            sink.put(TradeReport.getBuyOrderID(tradeReport)).put(',');
+            sink.put(TradeReport.getSellOrderID(tradeReport)).put('\n');
+        }, true);
+    }
+}
@@ -0,0 +1,111 @@
+package com.appsicle.orderbook;
+
+import com.appsicle.orderbook.model.BestBidOffer;
+import com.appsicle.orderbook.model.Order;
+import com.appsicle.orderbook.model.OrderSides;
+import com.questdb.std.Unsafe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TopOfBookTest {
+
+    @Test
+    public void testOrderBookPublishes() {
+        long expectedMem = Unsafe.getMemUsed();
+        long order = Unsafe.malloc(Order.SIZE);
+        long bbo = Unsafe.malloc(BestBidOffer.SIZE);
+        try (TopOfBook topOfBook = new TopOfBook(); OrderBook orderBook = new OrderBook(100_00, 200_00, 100, executionReport -> {})) {
+            orderBook.setTopOfBook(topOfBook);
+            long sequence = topOfBook.read(bbo);
+            assertBestBidOffer(bbo, 0, 0, 0, 0, 0, 0);
+
+            limitOrder(orderBook, order, OrderSides.BUY, 150_00, 10);
+            limitOrder(orderBook, order, OrderSides.BUY, 150_00, 5);
+            // order behind the best level does not change top of book
+            long bidID = limitOrder(orderBook, order, OrderSides.BUY, 149_00, 7);
+            long askID = limitOrder(orderBook, order, OrderSides.SELL, 151_00, 20);
+            Assert.assertEquals(sequence + 3, topOfBook.read(bbo));
+            assertBestBidOffer(bbo, 150_00, 15, 151_00, 20, 0, 0);
+
+            orderBook.cancelOrder(bidID);
+            Assert.assertEquals(sequence + 3, topOfBook.read(bbo));
+
+            limitOrder(orderBook, order, OrderSides.SELL, 150_00, 12);
+            Assert.assertEquals(sequence + 4, topOfBook.read(bbo));
+            assertBestBidOffer(bbo, 150_00, 3, 151_00, 20, 150_00, 2);
+
+            orderBook.amendOrder(askID, 151_00, 8);
+            topOfBook.read(bbo);
+            assertBestBidOffer(bbo, 150_00, 3, 151_00, 8, 150_00, 2);
+
+            limitOrder(orderBook, order, OrderSides.SELL, 140_00, 3);
+            topOfBook.read(bbo);
+            assertBestBidOffer(bbo, 0, 0, 151_00, 8, 150_00, 3);
+        } finally {
+            Unsafe.free(order, Order.SIZE);
+            Unsafe.free(bbo, BestBidOffer.SIZE);
+        }
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    @Test
+    public void testReaderSeesConsistentSnapshots() throws InterruptedException {
+        long expectedMem = Unsafe.getMemUsed();
+        final int count = 1_000_000;
+        final AtomicBoolean failed = new AtomicBoolean();
+        try (TopOfBook topOfBook = new TopOfBook()) {
+            Thread reader = new Thread(() -> {
+                long bbo = Unsafe.malloc(BestBidOffer.SIZE);
+                try {
+                    long lastSequence = 0;
+                    while (lastSequence < count) {
+                        long sequence = topOfBook.read(bbo);
+                        // writer publishes the same value into every field
+                        long bid = BestBidOffer.getBid(bbo);
+                        if (sequence < lastSequence
+                                || BestBidOffer.getBidSize(bbo) != bid
+                                || BestBidOffer.getAsk(bbo) != bid
+                                || BestBidOffer.getAskSize(bbo) != bid
+                                || BestBidOffer.getLastPrice(bbo) != bid
+                                || BestBidOffer.getLastSize(bbo) != bid
+                                || sequence != bid) {
+                            failed.set(true);
+                            return;
+                        }
+                        lastSequence = sequence;
+                    }
+                } finally {
+                    Unsafe.free(bbo, BestBidOffer.SIZE);
+                }
+            });
+            reader.start();
+            try {
+                for (long i = 1; i <= count; i++) {
+                    topOfBook.publish(i, i, i, i, i, i);
+                }
+            } finally {
+                reader.join();
+            }
+        }
+        Assert.assertFalse(failed.get());
+        Assert.assertEquals(expectedMem, Unsafe.getMemUsed());
+    }
+
+    private static long limitOrder(OrderBook orderBook, long order, byte side, long price, long size) {
+        Order.setSide(order, side);
+        Order.setPrice(order, price);
+        Order.setSize(order, size);
+        return orderBook.limitOrder(order);
+    }
+
+    private static void assertBestBidOffer(long bbo, long bid, long bidSize, long ask, long askSize, long lastPrice, long lastSize) {
+        Assert.assertEquals(bid, BestBidOffer.getBid(bbo));
+        Assert.assertEquals(bidSize, BestBidOffer.getBidSize(bbo));
+        Assert.assertEquals(ask, BestBidOffer.getAsk(bbo));
+        Assert.assertEquals(askSize, BestBidOffer.getAskSize(bbo));
+        Assert.assertEquals(lastPrice, BestBidOffer.getLastPrice(bbo));
+        Assert.assertEquals(lastSize, BestBidOffer.getLastSize(bbo));
+    }
+}